@@ -23,6 +23,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.*;
 import javax.swing.event.*;
+import net.java.dev.colorchooser.ColorFieldValidator;
+import net.java.dev.colorchooser.ColorParser;
 
 /** This is a panel that offers a robust set of controls to pick a color.
  * <P>This was originally intended to replace the <code>JColorChooser</code>.
@@ -429,6 +431,13 @@ public class ColorPicker extends JPanel {
 				return;
 			}
 			
+			Color c = hexValidator.getColor();
+			if(c!=null) {
+				//shorthand hex: only commit it once the user stops typing
+				setRGB(c.getRed(), c.getGreen(), c.getBlue());
+				return;
+			}
+			
 			if(text.length()>6)
 				text = text.substring(0,6);
 			while(text.length()<6) {
@@ -444,31 +453,28 @@ public class ColorPicker extends JPanel {
 	}
 	
 	HexDocumentListener hexDocListener = new HexDocumentListener();
+	ColorFieldValidator hexValidator = new ColorFieldValidator(hexDocListener);
 
-	class HexDocumentListener implements DocumentListener {
+	class HexDocumentListener implements ColorFieldValidator.Listener {
 		long lastTimeStamp;
 		
         @Override
-		public void changedUpdate(DocumentEvent e) {
+		public void textChanged(ColorFieldValidator validator) {
 			lastTimeStamp = System.currentTimeMillis();
 			
 			if(adjustingHexField>0)
 				return;
 			
-			String s = hexField.getText();
-			s = stripToHex(s);
-			if(s.length()==6) {
-				//the user typed 6 digits: we can work with this:
-				try {
-					int i = Integer.parseInt(s,16);
-					setRGB( ((i >> 16) & 0xff), ((i >> 8) & 0xff), ((i) & 0xff) );
-					return;
-				} catch(NumberFormatException e2) {
-					//this shouldn't happen, since we already stripped out non-hex characters.
-					e2.printStackTrace();
-				}
+			ColorParser format = validator.getFormat();
+			if(format==ColorParser.HEX_RGB || format==ColorParser.HEX_RGBA) {
+				//the user typed 6 or 8 digits: we can work with this:
+				Color c = validator.getColor();
+				setRGB(c.getRed(), c.getGreen(), c.getBlue());
+				if(format==ColorParser.HEX_RGBA && opacitySlider.isVisible())
+					setOpacity(c.getAlpha()/255f);
+				return;
 			}
-			Thread thread = new HexUpdateThread(lastTimeStamp,s);
+			Thread thread = new HexUpdateThread(lastTimeStamp,stripToHex(hexField.getText()));
 			thread.start();
 			while(System.currentTimeMillis()-lastTimeStamp==0) {
 				Thread.yield();
@@ -489,16 +495,6 @@ public class ColorPicker extends JPanel {
 			}
 			return s2;
 		}
-
-        @Override
-		public void insertUpdate(DocumentEvent e) {
-			changedUpdate(e);
-		}
-
-        @Override
-		public void removeUpdate(DocumentEvent e) {
-			changedUpdate(e);
-		}
 	};
 
 	private Option alpha = new Option(strings.getObject("alphaLabel").toString(), 255);
@@ -665,7 +661,7 @@ public class ColorPicker extends JPanel {
 		slider.addChangeListener(changeListener);
 		colorPanel.addChangeListener(changeListener);
 		slider.setUI(new ColorPickerSliderUI(slider,this));
-		hexField.getDocument().addDocumentListener(hexDocListener);
+		hexValidator.attach(hexField);
 		setMode(BRI);
 
 		setExpertControlsVisible(showExpertControls);
@@ -22,7 +22,11 @@ import java.awt.GradientPaint;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.Locale;
 import javax.swing.UIManager;
 import static net.java.dev.colorchooser.ColorChooser.getString;
 
@@ -34,8 +38,60 @@ public class AlphaPalette extends Palette {
 
     private final ColorChooser chooser;
 
+    private static final int WIDTH = 120;
+    private static final int HEIGHT = 360;
+    private static final int CHECKER_SIZE = 12;
+
 //    private static final DecimalFormat FMT = new DecimalFormat(getString("alphaFormat"));
-    private static final DecimalFormat FMT = new DecimalFormat("##0.##%" + getString("alpha"));
+    /** The alpha value for each row of the palette. */
+    private static final int[] ALPHA_RAMP = new int[HEIGHT + 1];
+
+    static {
+        for (int y = 0; y < ALPHA_RAMP.length; y++) {
+            float factor = 1F - ((float) y / HEIGHT);
+            ALPHA_RAMP[y] = Math.min(255, Math.max(0, (int) (255F * factor)));
+        }
+    }
+
+    /**
+     * Preformatted percentage labels, indexed by alpha value 0-255 - built
+     * the first time a name is asked for in a locale, as the format needs a
+     * bundle lookup.
+     */
+    private static final class AlphaNames {
+
+        final Locale locale;
+        final String[] names = new String[256];
+
+        AlphaNames(Locale locale) {
+            this.locale = locale;
+            DecimalFormat fmt = new DecimalFormat("##0.##%" + getString("alpha"));
+            for (int i = 0; i < names.length; i++) {
+                names[i] = fmt.format(i / 255F);
+            }
+        }
+
+        private static volatile AlphaNames current;
+
+        static String[] get() {
+            Locale locale = Locale.getDefault();
+            AlphaNames result = current;
+            if (result == null || !result.locale.equals(locale)) {
+                current = result = new AlphaNames(locale);
+            }
+            return result.names;
+        }
+    }
+
+    /** Colors for the current base color, created as they are requested. */
+    private final Color[] colorCache = new Color[256];
+    private int colorCacheRGB = -1;
+
+    /** The fully composited strip for the last base color and scale. */
+    private BufferedImage image;
+    private int imageRGB = -1;
+    private double imageScaleX;
+    private double imageScaleY;
 
     AlphaPalette(ColorChooser chooser) {
         this.chooser = chooser;
@@ -43,63 +99,104 @@ public class AlphaPalette extends Palette {
 
     @Override
     public Color getColorAt(int x, int y) {
-        Color base = chooser.getColor();
-        int alpha = alphaAt(y);
-        return new Color(base.getRed(), base.getGreen(), base.getBlue(), alpha);
+        return colorForAlpha(baseRGB(), alphaAt(y));
     }
 
     @Override
     public String getNameAt(int x, int y) {
-        float fact = Math.max(0F, Math.min(1F, alphaFactorAt(y)));
-        return FMT.format(fact);
+        return AlphaNames.get()[alphaAt(y)];
     }
 
-    private float alphaFactorAt(int y) {
-        float h = getSize().height;
-        float factor = y / h;
-        return 1F - factor;
+    private int baseRGB() {
+        return chooser.getColor().getRGB() & 0xFFFFFF;
     }
 
-    private int alphaAt(int y) {
-        int result = (int) (255F * alphaFactorAt(y));
-        return Math.min(255, Math.max(0, result));
+    private Color colorForAlpha(int rgb, int alpha) {
+        if (rgb != colorCacheRGB) {
+            Arrays.fill(colorCache, null);
+            colorCacheRGB = rgb;
+        }
+        Color result = colorCache[alpha];
+        if (result == null) {
+            result = colorCache[alpha] = new Color((alpha << 24) | rgb, true);
+        }
+        return result;
+    }
+
+    private static int alphaAt(int y) {
+        return ALPHA_RAMP[Math.max(0, Math.min(HEIGHT, y))];
     }
 
     private final Color gray1 = new Color(164, 164, 164);
     private final Color gray2 = new Color(128, 128, 128);
+
     @Override
     public void paintTo(Graphics g) {
-        Dimension sz = getSize();
-        for (int x = 0; x < sz.width; x += 12) {
-            int xix = x / 12;
+        Graphics2D gg = (Graphics2D) g;
+        AffineTransform xform = gg.getTransform();
+        double scaleX = xform.getScaleX();
+        double scaleY = xform.getScaleY();
+        BufferedImage img = image(baseRGB(), scaleX, scaleY);
+        if (img.getWidth() == WIDTH && img.getHeight() == HEIGHT) {
+            gg.drawImage(img, 0, 0, null);
+        } else {
+            gg.drawImage(img, 0, 0, WIDTH, HEIGHT, null);
+        }
+        gg.setColor(UIManager.getColor("controlShadow"));
+        gg.drawRect(0, 0, WIDTH - 1, HEIGHT - 1);
+    }
+
+    private BufferedImage image(int rgb, double scaleX, double scaleY) {
+        if (image != null && imageRGB == rgb && imageScaleX == scaleX
+                && imageScaleY == scaleY) {
+            return image;
+        }
+        int w = Math.max(1, (int) Math.ceil(WIDTH * scaleX));
+        int h = Math.max(1, (int) Math.ceil(HEIGHT * scaleY));
+        BufferedImage img = image;
+        if (img == null || img.getWidth() != w || img.getHeight() != h) {
+            img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        }
+        Graphics2D g = img.createGraphics();
+        try {
+            g.scale(scaleX, scaleY);
+            paintStrip(g, rgb);
+        } finally {
+            g.dispose();
+        }
+        image = img;
+        imageRGB = rgb;
+        imageScaleX = scaleX;
+        imageScaleY = scaleY;
+        return img;
+    }
+
+    private void paintStrip(Graphics2D g, int rgb) {
+        for (int x = 0; x < WIDTH; x += CHECKER_SIZE) {
+            int xix = x / CHECKER_SIZE;
             boolean evenX = xix % 2 == 0;
-            for (int y = 0; y < sz.height; y += 12) {
-                int yix = y / 12;
+            for (int y = 0; y < HEIGHT; y += CHECKER_SIZE) {
+                int yix = y / CHECKER_SIZE;
                 boolean evenY = yix % 2 == 0;
                 if (evenX == evenY) {
                     g.setColor(gray1);
                 } else {
                     g.setColor(gray2);
                 }
-                g.fillRect(x, y, 12, 12);
+                g.fillRect(x, y, CHECKER_SIZE, CHECKER_SIZE);
             }
         }
-        Color c1 = getColorAt(0, 0);
-        Color c2 = getColorAt(0, sz.height);
-        GradientPaint gp = new GradientPaint(0, 0, c1, 0,
-                sz.height, c2);
-        Graphics2D gg = (Graphics2D) g;
-        gg.setPaint(gp);
-        gg.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING,
+        GradientPaint gp = new GradientPaint(0, 0, colorForAlpha(rgb, alphaAt(0)),
+                0, HEIGHT, colorForAlpha(rgb, alphaAt(HEIGHT)));
+        g.setPaint(gp);
+        g.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING,
                 RenderingHints.VALUE_COLOR_RENDER_QUALITY);
-        gg.fillRect(1, 1, sz.width - 2, sz.height - 2);
-        gg.setColor(UIManager.getColor("controlShadow"));
-        gg.drawRect(0, 0, sz.width - 1, sz.height - 1);
+        g.fillRect(1, 1, WIDTH - 2, HEIGHT - 2);
     }
 
     @Override
     public Dimension getSize() {
-        return new Dimension(120, 360);
+        return new Dimension(WIDTH, HEIGHT);
     }
 
     @Override
@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.MissingResourceException;
 import java.util.Objects;
 import java.util.ResourceBundle;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JButton;
@@ -73,6 +74,11 @@ import javax.swing.text.Segment;
  * component will fire changes in PROP_COLOR along with actin events, when the
  * user selects a color. PROP_COLOR changes are fired both in response to use
  * actions and programmatic changes to the color property.
+ * <p>
+ * Changes to the color can be undone and redone, from code or with the
+ * platform's undo and redo keys. A choice from the popup palette is one step
+ * however long the drag that made it, and a burst of keyboard adjustments is
+ * coalesced into one step.
  * <P>
  * @author Tim Boudreau
  */
@@ -89,6 +95,10 @@ public final class ColorChooser extends JComponent {
     private Color color = Color.BLUE;
     private transient Color transientColor = null;
     private transient List actionListenerList;
+    private final ColorHistory history
+            = new ColorHistory(ColorHistory.DEFAULT_CAPACITY);
+    private transient boolean restoringHistory;
+    private transient boolean adjusting;
 
     /**
      * Property name for property fired when the color property changes.
@@ -113,6 +123,8 @@ public final class ColorChooser extends JComponent {
      * its previous value.
      */
     public static final String PROP_PICKER_VISIBLE = "pickerVisible";
+    private static final List<PersistenceListener> persistenceListeners
+            = new CopyOnWriteArrayList<>();
     private boolean continuousPalette = true;
 
     /**
@@ -199,6 +211,26 @@ public final class ColorChooser extends JComponent {
         return false;
     }
 
+    /**
+     * Set the color from a range of characters in one of the formats supported
+     * by ColorParser, without copying them into a String - for example, from a
+     * <code>Segment</code> obtained from a document.
+     *
+     * @param text The characters
+     * @param start The start offset, inclusive
+     * @param end The end offset, exclusive
+     * @return true if the range was parsed successfully
+     * @since 1.6
+     */
+    public boolean setAsText(CharSequence text, int start, int end) {
+        Color c = ColorParser.parse(text, start, end);
+        if (c != null) {
+            setColor(c);
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Set the color this color chooser currently represents. Note this will
      * fire a change in <code>PROP_COLOR</code> but will not trigger an action
@@ -213,6 +245,10 @@ public final class ColorChooser extends JComponent {
         if (!Objects.equals(color, c)) {
             Color old = color;
             color = c;
+            if (!restoringHistory) {
+                history.record(old.getRGB(), c.getRGB(), adjusting,
+                        System.currentTimeMillis());
+            }
             if (color != null) {
                 // Since via the keyboard, you can adjust a color down to black,
                 // adjusting it back upward will get you gray - what we want is to
@@ -225,6 +261,76 @@ public final class ColorChooser extends JComponent {
         }
     }
 
+    /**
+     * Determine if there is a change to the color which can be undone.
+     *
+     * @return true if <code>undo()</code> will change the color
+     * @since 1.6
+     */
+    public boolean canUndo() {
+        return history.canUndo();
+    }
+
+    /**
+     * Determine if there is an undone change to the color which can be
+     * redone.
+     *
+     * @return true if <code>redo()</code> will change the color
+     * @since 1.6
+     */
+    public boolean canRedo() {
+        return history.canRedo();
+    }
+
+    /**
+     * Restore the color as it was before the last change, firing a change in
+     * <code>PROP_COLOR</code>.
+     *
+     * @return true if there was a change to undo
+     * @since 1.6
+     */
+    public boolean undo() {
+        if (!history.canUndo()) {
+            return false;
+        }
+        restore(history.undo());
+        return true;
+    }
+
+    /**
+     * Reapply the last change undone, firing a change in
+     * <code>PROP_COLOR</code>.
+     *
+     * @return true if there was a change to redo
+     * @since 1.6
+     */
+    public boolean redo() {
+        if (!history.canRedo()) {
+            return false;
+        }
+        restore(history.redo());
+        return true;
+    }
+
+    /**
+     * Forget all undoable changes, for example when the chooser is reused to
+     * edit a different value.
+     *
+     * @since 1.6
+     */
+    public void clearHistory() {
+        history.clear();
+    }
+
+    private void restore(int argb) {
+        restoringHistory = true;
+        try {
+            setColor(new Color(argb, true));
+        } finally {
+            restoringHistory = false;
+        }
+    }
+
     private float preservedHue;
     private float preservedSaturation;
     private final float[] componentsScratch = new float[3];
@@ -276,13 +382,8 @@ public final class ColorChooser extends JComponent {
     public static String colorToString(Color c) {
         NamedColor named = RecentColors.findNamedColor(c);
         if (named == null) {
-            StringBuilder sb = new StringBuilder();
-            sb.append(c.getRed());
-            sb.append(',');
-            sb.append(c.getGreen());
-            sb.append(',');
-            sb.append(c.getBlue());
-            return sb.toString();
+            return ColorParser.COMMA_DELIMITED_RGB.appendTo(
+                    new StringBuilder(11), c.getRGB()).toString();
         } else {
             return named.getDisplayName();
         }
@@ -294,13 +395,63 @@ public final class ColorChooser extends JComponent {
 
     /**
      * Returns the SVG or Swing constant name for the passed color, if the color
-     * exactly matches a color in the Swing UIManager constants or the
-     * SVG/X-Windows constants.
+     * exactly matches a color in the Swing UIManager constants, the
+     * SVG/X-Windows constants, the system colors or a palette created with
+     * <code>Palette.createPredefinedPalette()</code> which is still
+     * reachable. Where several names share a color, the result is always the
+     * same one.
      */
     public static String getColorName(Color color) {
         return PredefinedPalette.getColorName(color);
     }
 
+    /**
+     * Notified when the recently used colors, which all color choosers share
+     * and which are kept in the user's preferences, cannot be loaded or
+     * saved. Called on a background thread.
+     *
+     * @since 1.6
+     */
+    public interface PersistenceListener {
+
+        /**
+         * Called when loading or saving the recent colors fails.
+         *
+         * @param e The failure
+         */
+        void persistenceFailed(Exception e);
+    }
+
+    /**
+     * Add a listener to be told when the recent colors cannot be loaded or
+     * saved. Failures are logged if there are no listeners. Listeners
+     * added before the first color chooser is shown also hear about
+     * failures loading the colors.
+     *
+     * @param l A listener
+     * @since 1.6
+     */
+    public static void addPersistenceListener(PersistenceListener l) {
+        persistenceListeners.add(Objects.requireNonNull(l));
+    }
+
+    /**
+     * Remove a listener added with <code>addPersistenceListener()</code>.
+     *
+     * @param l A listener
+     * @since 1.6
+     */
+    public static void removePersistenceListener(PersistenceListener l) {
+        persistenceListeners.remove(l);
+    }
+
+    static boolean recentColorsFailed(Exception e) {
+        for (PersistenceListener l : persistenceListeners) {
+            l.persistenceFailed(e);
+        }
+        return !persistenceListeners.isEmpty();
+    }
+
     /**
      * Set whether the initial palette shown when clicked with no keys pressed
      * is one showing a continuous (rainbow) palette or a set of tiles with
@@ -352,22 +503,36 @@ public final class ColorChooser extends JComponent {
         }
         Palette[] old = this.palettes;
         if (palettes == null) {
-            palettes = Palette.getDefaultPalettes(continuousPalette);
-            palettes = Arrays.copyOf(palettes, palettes.length + 1);
-            palettes[palettes.length - 1] = new AlphaPalette(this);
+            // The defaults are created when first shown, so a chooser which
+            // is never opened does not build the palettes' color tables -
+            // unless someone is listening; the no-argument form also returns
+            // listeners added for a single property
+            this.palettes = null;
+            if (old != null && getPropertyChangeListeners().length > 0) {
+                firePropertyChange("palettes", old, getPalettes()); //NOI18N
+            }
+            return;
         }
         this.palettes = palettes;
         firePropertyChange("palettes", old, palettes.clone()); //NOI18N
     }
 
+    private Palette[] palettes() {
+        if (palettes == null) {
+            Palette[] result = Palette.getDefaultPalettes(continuousPalette);
+            result = Arrays.copyOf(result, result.length + 1);
+            result[result.length - 1] = new AlphaPalette(this);
+            palettes = result;
+        }
+        return palettes;
+    }
+
     /**
      * Get the array of palettes that will be displayed when the user clicks
      * this color chooser component and holds down various keys.
      */
     public Palette[] getPalettes() {
-        Palette[] result = new Palette[palettes.length];
-        System.arraycopy(palettes, 0, result, 0, palettes.length);
-        return result;
+        return palettes().clone();
     }
 
     static String getString(String key) {
@@ -493,12 +658,10 @@ public final class ColorChooser extends JComponent {
                 if (flavor == DataFlavor.stringFlavor) {
                     try {
                         String data = (String) dtde.getTransferable().getTransferData(DataFlavor.stringFlavor);
-                        if (ColorParser.canParse(data)) {
-                            Color c = ColorParser.parse(data);
-                            if (c != null) {
-                                setColor(c);
-                                dtde.dropComplete(true);
-                            }
+                        long parsed = ColorParser.parseArgb(data);
+                        if (ColorParser.isMatch(parsed)) {
+                            setColor(new Color(ColorParser.argb(parsed), true));
+                            dtde.dropComplete(true);
                         }
                     } catch (UnsupportedFlavorException | IOException ex) {
                         Logger.getLogger(ColorChooser.class.getName()).log(Level.SEVERE, null, ex);
@@ -542,7 +705,12 @@ public final class ColorChooser extends JComponent {
         }
         boolean changed = !color.equals(nue);
         if (changed) {
-            setColor(nue);
+            adjusting = true;
+            try {
+                setColor(nue);
+            } finally {
+                adjusting = false;
+            }
         }
         return changed;
     }
@@ -610,9 +778,8 @@ public final class ColorChooser extends JComponent {
                             ex.printStackTrace();
                         }
                     });
-                    String txt = s.toString();
-                    if (!txt.isEmpty()) {
-                        cc.setAsText(txt);
+                    if (s.length() > 0) {
+                        cc.setAsText(s, 0, s.length());
                     }
                 } finally {
                     updating[0] = false;
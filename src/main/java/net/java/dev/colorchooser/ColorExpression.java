@@ -0,0 +1,440 @@
+/*
+ * Copyright 2010-2022 Tim Boudreau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.java.dev.colorchooser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A compiled color expression, such as
+ * <code>mix(#336699, white, 20%)</code>, <code>darken(accent, 10%)</code> or
+ * <code>alpha(fg, .5)</code>.
+ * <p>
+ * Expressions are made of:
+ * <ul>
+ * <li>Any color ColorParser understands other than the comma-delimited
+ * forms - <code>#</code> hex, <code>rgb()</code>, <code>hsl()</code> and
+ * color names</li>
+ * <li>Variables - any other identifier, bound to a color at evaluation
+ * time</li>
+ * <li><code>mix(a, b[, weight])</code> - the weight of <code>a</code>,
+ * 50% if omitted</li>
+ * <li><code>darken(c, amount)</code> and <code>lighten(c, amount)</code> -
+ * shift HSL lightness by the amount</li>
+ * <li><code>alpha(c, value)</code> - replace the alpha of a color</li>
+ * </ul>
+ * Amounts are a number followed by <code>%</code>, or a plain number which
+ * means a percentage for <code>mix</code>, <code>darken</code> and
+ * <code>lighten</code>, and a fraction from 0 to 1 for <code>alpha</code>.
+ * <p>
+ * An expression is parsed once into a tree of evaluators over packed ARGB
+ * ints, with every subexpression that does not depend on a variable folded
+ * into a constant, so evaluating it allocates nothing.
+ *
+ * @author Tim Boudreau
+ * @since 1.6
+ */
+public final class ColorExpression {
+
+    private final String text;
+    private final Node root;
+    private final String[] variables;
+
+    private ColorExpression(String text, Node root, String[] variables) {
+        this.text = text;
+        this.root = root;
+        this.variables = variables;
+    }
+
+    /**
+     * Compile an expression.
+     *
+     * @param text The expression
+     * @return A compiled expression
+     * @throws IllegalArgumentException if the text is not a valid expression
+     */
+    public static ColorExpression compile(CharSequence text) {
+        Compiler compiler = new Compiler(text);
+        Node root = compiler.compile();
+        return new ColorExpression(text.toString(), root,
+                compiler.variables.toArray(new String[0]));
+    }
+
+    /**
+     * Get the number of variables the expression uses.
+     *
+     * @return The number of variables
+     */
+    public int variableCount() {
+        return variables.length;
+    }
+
+    /**
+     * Get the name of a variable.
+     *
+     * @param index The index of the variable, in order of first occurrence
+     * @return The name
+     */
+    public String variableName(int index) {
+        return variables[index];
+    }
+
+    /**
+     * Get the index of a variable, which is its position in the array passed
+     * to <code>evaluate()</code>.
+     *
+     * @param name A variable name
+     * @return The index, or -1 if the expression does not use it
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < variables.length; i++) {
+            if (variables[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Determine if the expression has no variables, and so always evaluates
+     * to the same color.
+     *
+     * @return true if it is constant
+     */
+    public boolean isConstant() {
+        return root instanceof Constant;
+    }
+
+    /**
+     * Evaluate the expression.
+     *
+     * @param bindings The ARGB value of each variable, by index
+     * @return The resulting color as packed ARGB
+     * @throws IllegalArgumentException if fewer values than variables are
+     * passed
+     */
+    public int evaluate(int... bindings) {
+        if (bindings.length < variables.length) {
+            throw new IllegalArgumentException("Expression '" + text + "' has "
+                    + variables.length + " variables but " + bindings.length
+                    + " values were passed");
+        }
+        return root.evaluate(bindings);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    private abstract static class Node {
+
+        abstract int evaluate(int[] bindings);
+    }
+
+    private static final class Constant extends Node {
+
+        private final int argb;
+
+        Constant(int argb) {
+            this.argb = argb;
+        }
+
+        @Override
+        int evaluate(int[] bindings) {
+            return argb;
+        }
+    }
+
+    private static final class Variable extends Node {
+
+        private final int index;
+
+        Variable(int index) {
+            this.index = index;
+        }
+
+        @Override
+        int evaluate(int[] bindings) {
+            return bindings[index];
+        }
+    }
+
+    private static final class Mix extends Node {
+
+        private final Node first;
+        private final Node second;
+        // Weight of the first color, in 16.16 fixed point
+        private final int weight;
+
+        Mix(Node first, Node second, double weight) {
+            this.first = first;
+            this.second = second;
+            this.weight = (int) Math.round(weight * 65536);
+        }
+
+        @Override
+        int evaluate(int[] bindings) {
+            return mix(first.evaluate(bindings), second.evaluate(bindings), weight);
+        }
+
+        private static int mix(int a, int b, int weight) {
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 8) {
+                int ca = (a >>> shift) & 0xFF;
+                int cb = (b >>> shift) & 0xFF;
+                int c = (ca * weight + cb * (65536 - weight) + 32768) >> 16;
+                result |= c << shift;
+            }
+            return result;
+        }
+    }
+
+    private static final class Lightness extends Node {
+
+        private final Node color;
+        private final double delta;
+
+        Lightness(Node color, double delta) {
+            this.color = color;
+            this.delta = delta;
+        }
+
+        @Override
+        int evaluate(int[] bindings) {
+            int argb = color.evaluate(bindings);
+            double l = Math.max(0, Math.min(100, ColorParser.hslLightness(argb) + delta * 100));
+            return (argb & 0xFF000000) | ColorParser.hslToRgb(ColorParser.hslHue(argb),
+                    ColorParser.hslSaturation(argb), l);
+        }
+    }
+
+    private static final class Alpha extends Node {
+
+        private final Node color;
+        private final int alpha;
+
+        Alpha(Node color, double alpha) {
+            this.color = color;
+            this.alpha = (int) Math.round(alpha * 255) << 24;
+        }
+
+        @Override
+        int evaluate(int[] bindings) {
+            return (color.evaluate(bindings) & 0x00FFFFFF) | alpha;
+        }
+    }
+
+    /**
+     * Recursive descent parser which builds the evaluator tree, folding
+     * constant subtrees as it goes.
+     */
+    private static final class Compiler {
+
+        private final CharSequence s;
+        private final int end;
+        private int pos;
+        final List<String> variables = new ArrayList<>();
+
+        Compiler(CharSequence s) {
+            this.s = s;
+            this.end = s.length();
+        }
+
+        Node compile() {
+            Node result = expression();
+            skipWhitespace();
+            if (pos != end) {
+                throw error("Unexpected '" + s.charAt(pos) + "'");
+            }
+            return result;
+        }
+
+        private Node expression() {
+            skipWhitespace();
+            if (pos == end) {
+                throw error("Expected a color");
+            }
+            int start = pos;
+            char c = s.charAt(pos);
+            if (c == '#') {
+                pos++;
+                while (pos < end && isIdentifierPart(s.charAt(pos))) {
+                    pos++;
+                }
+                return literal(s, start, pos, start);
+            }
+            if (!isIdentifierStart(c)) {
+                throw error("Expected a color but found '" + c + "'");
+            }
+            while (pos < end && isIdentifierPart(s.charAt(pos))) {
+                pos++;
+            }
+            String name = s.subSequence(start, pos).toString();
+            skipWhitespace();
+            if (pos < end && s.charAt(pos) == '(') {
+                return function(name, start);
+            }
+            long named = ColorNames.lookup(s, start, start + name.length());
+            if (named != ColorParser.NO_MATCH) {
+                return new Constant(ColorParser.argb(named));
+            }
+            int index = variables.indexOf(name);
+            if (index < 0) {
+                index = variables.size();
+                variables.add(name);
+            }
+            return new Variable(index);
+        }
+
+        private Node function(String name, int start) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            switch (lower) {
+                case "rgb":
+                case "rgba":
+                case "hsl":
+                case "hsla":
+                    int close = pos;
+                    while (close < end && s.charAt(close) != ')') {
+                        close++;
+                    }
+                    if (close == end) {
+                        throw error("Unterminated " + name + "()");
+                    }
+                    //ColorParser allows no whitespace before the parenthesis,
+                    //so hand it the name and arguments without it
+                    String literal = name + s.subSequence(pos, close + 1);
+                    pos = close + 1;
+                    return literal(literal, 0, literal.length(), start);
+                case "mix": {
+                    pos++;
+                    Node first = expression();
+                    expect(',');
+                    Node second = expression();
+                    double weight = 0.5;
+                    if (peek(',')) {
+                        weight = amount(true);
+                    }
+                    expect(')');
+                    return fold(new Mix(first, second, weight), first, second);
+                }
+                case "darken":
+                case "lighten": {
+                    pos++;
+                    Node color = expression();
+                    expect(',');
+                    double amount = amount(true);
+                    expect(')');
+                    return fold(new Lightness(color,
+                            "darken".equals(lower) ? -amount : amount), color, color);
+                }
+                case "alpha": {
+                    pos++;
+                    Node color = expression();
+                    expect(',');
+                    double alpha = amount(false);
+                    expect(')');
+                    return fold(new Alpha(color, alpha), color, color);
+                }
+                default:
+                    pos = start;
+                    throw error("Unknown function '" + name + "'");
+            }
+        }
+
+        private static Node fold(Node node, Node first, Node second) {
+            if (first instanceof Constant && second instanceof Constant) {
+                return new Constant(node.evaluate(null));
+            }
+            return node;
+        }
+
+        private Node literal(CharSequence text, int start, int end, int at) {
+            long result = ColorParser.scan(text, start, end);
+            if (result == ColorParser.NO_MATCH) {
+                pos = at;
+                throw error("Not a color: '" + text.subSequence(start, end) + "'");
+            }
+            return new Constant(ColorParser.argb(result));
+        }
+
+        private double amount(boolean unitlessIsPercent) {
+            skipWhitespace();
+            int start = pos;
+            while (pos < end && (isDigit(s.charAt(pos)) || s.charAt(pos) == '.')) {
+                pos++;
+            }
+            double value;
+            try {
+                value = Double.parseDouble(s.subSequence(start, pos).toString());
+            } catch (NumberFormatException e) {
+                pos = start;
+                throw error("Expected a number");
+            }
+            if (pos < end && s.charAt(pos) == '%') {
+                pos++;
+                value /= 100;
+            } else if (unitlessIsPercent) {
+                value /= 100;
+            }
+            if (value > 1) {
+                pos = start;
+                throw error("Amount out of range");
+            }
+            return value;
+        }
+
+        private boolean peek(char c) {
+            skipWhitespace();
+            if (pos < end && s.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!peek(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < end && Character.isWhitespace(s.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + pos
+                    + " in '" + s + "'");
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+
+        private static boolean isIdentifierStart(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+        }
+
+        private static boolean isIdentifierPart(char c) {
+            return isIdentifierStart(c) || isDigit(c) || c == '-';
+        }
+    }
+}
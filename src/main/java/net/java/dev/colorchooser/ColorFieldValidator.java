@@ -0,0 +1,178 @@
+/*
+ * Copyright 2010-2022 Tim Boudreau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.java.dev.colorchooser;
+
+import java.awt.Color;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.Segment;
+
+/**
+ * Validates a hex color text field as the user types, using an
+ * IncrementalColorParser kept in step with the field's document. Typing or
+ * deleting at the end of the text - the usual case - costs constant time per
+ * character; any other edit re-reads the document once.
+ *
+ * @author Tim Boudreau
+ * @since 1.6
+ */
+public final class ColorFieldValidator implements DocumentListener {
+
+    private final IncrementalColorParser parser = new IncrementalColorParser();
+    private final Segment segment = new Segment();
+    private final Listener listener;
+    private Document document;
+
+    /**
+     * Notified after each change to the validated text.
+     */
+    public interface Listener {
+
+        /**
+         * Called after the text changes.
+         *
+         * @param validator The validator, which reflects the new text
+         */
+        void textChanged(ColorFieldValidator validator);
+    }
+
+    /**
+     * Create a validator.
+     *
+     * @param listener Notified of changes, or null
+     */
+    public ColorFieldValidator(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Start validating the document of a text component.
+     *
+     * @param field A text component
+     */
+    public void attach(JTextComponent field) {
+        attach(field.getDocument());
+    }
+
+    /**
+     * Start validating a document, detaching from any previous one.
+     *
+     * @param document A document
+     */
+    public void attach(Document document) {
+        detach();
+        this.document = document;
+        document.addDocumentListener(this);
+        resync(document);
+    }
+
+    /**
+     * Stop validating.
+     */
+    public void detach() {
+        if (document != null) {
+            document.removeDocumentListener(this);
+            document = null;
+            parser.reset();
+        }
+    }
+
+    /**
+     * Get the state of the text.
+     *
+     * @return The state
+     */
+    public IncrementalColorParser.State getState() {
+        return parser.state();
+    }
+
+    /**
+     * Get the color the text describes.
+     *
+     * @return The color, or null if the state is not VALID
+     */
+    public Color getColor() {
+        return parser.color();
+    }
+
+    /**
+     * Get the format of the text.
+     *
+     * @return The format, or null if the state is not VALID
+     */
+    public ColorParser getFormat() {
+        return parser.format();
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        Document doc = e.getDocument();
+        int offset = e.getOffset();
+        int length = e.getLength();
+        if (offset == parser.length() && doc.getLength() == offset + length) {
+            try {
+                doc.getText(offset, length, segment);
+                parser.feed(segment, 0, segment.length());
+            } catch (BadLocationException ex) {
+                resync(doc);
+            }
+        } else {
+            resync(doc);
+        }
+        fire();
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        Document doc = e.getDocument();
+        int offset = e.getOffset();
+        int length = e.getLength();
+        if (offset + length == parser.length() && doc.getLength() == offset) {
+            for (int i = 0; i < length; i++) {
+                parser.deleteLast();
+            }
+        } else {
+            resync(doc);
+        }
+        fire();
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        // Attribute changes only
+    }
+
+    private void resync(Document doc) {
+        parser.reset();
+        try {
+            doc.getText(0, doc.getLength(), segment);
+            parser.feed(segment, 0, segment.length());
+        } catch (BadLocationException ex) {
+            // Cannot happen - the range is the whole document
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void fire() {
+        if (listener != null) {
+            listener.textChanged(this);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2010-2022 Tim Boudreau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.java.dev.colorchooser;
+
+import java.io.Serializable;
+
+/**
+ * Undo history of a color chooser, as packed ARGB values in a fixed-capacity
+ * ring - the oldest step is forgotten when it fills, so a history costs
+ * 4 bytes per step however long it is used.
+ * <p>
+ * Changes recorded as coalescing within COALESCE_WINDOW milliseconds of the
+ * previous coalescing change replace it rather than adding a step, so a burst
+ * of keyboard adjustments - including auto-repeat, which on some platforms
+ * sends a release between each press - is undone in one step.
+ *
+ * @author Tim Boudreau
+ */
+final class ColorHistory implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    static final int DEFAULT_CAPACITY = 256;
+    static final long COALESCE_WINDOW = 600;
+    private final int[] values;
+    /** Ring index of the oldest step */
+    private int start;
+    private int count;
+    /** The step the current color is at, 0 being the oldest */
+    private int current = -1;
+    private boolean coalescing;
+    private long lastCoalesced;
+
+    ColorHistory(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be > 1: " + capacity);
+        }
+        values = new int[capacity];
+    }
+
+    /**
+     * Record a change of color, discarding anything that could have been
+     * redone.
+     *
+     * @param from The color before the change
+     * @param to The color after it
+     * @param coalesce Whether this change may merge with the previous one
+     * @param when The time of the change, in milliseconds
+     */
+    void record(int from, int to, boolean coalesce, long when) {
+        count = current + 1;
+        if (count == 0 || values[at(current)] != from) {
+            // The first change, or the color was changed behind our back
+            append(from);
+            coalescing = false;
+        }
+        if (coalesce && coalescing && when - lastCoalesced <= COALESCE_WINDOW) {
+            values[at(current)] = to;
+        } else {
+            append(to);
+        }
+        coalescing = coalesce;
+        lastCoalesced = when;
+    }
+
+    private void append(int value) {
+        if (count == values.length) {
+            start = at(1);
+            count--;
+        }
+        values[at(count)] = value;
+        current = count++;
+    }
+
+    private int at(int step) {
+        int ix = start + step;
+        return ix >= values.length ? ix - values.length : ix;
+    }
+
+    boolean canUndo() {
+        return current > 0;
+    }
+
+    boolean canRedo() {
+        return current < count - 1;
+    }
+
+    /**
+     * Step back.
+     *
+     * @return The color to restore
+     * @throws IllegalStateException if there is nothing to undo
+     */
+    int undo() {
+        if (!canUndo()) {
+            throw new IllegalStateException("Nothing to undo");
+        }
+        coalescing = false;
+        return values[at(--current)];
+    }
+
+    /**
+     * Step forward.
+     *
+     * @return The color to restore
+     * @throws IllegalStateException if there is nothing to redo
+     */
+    int redo() {
+        if (!canRedo()) {
+            throw new IllegalStateException("Nothing to redo");
+        }
+        coalescing = false;
+        return values[at(++current)];
+    }
+
+    void clear() {
+        start = 0;
+        count = 0;
+        current = -1;
+        coalescing = false;
+    }
+
+    /**
+     * Get the number of colors held, including the current one.
+     */
+    int size() {
+        return count;
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2010-2022 Tim Boudreau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.java.dev.colorchooser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Finds color literals in arbitrarily large text, such as CSS, properties or
+ * source files, using the grammar of ColorParser. Recognizes <code>#</code>
+ * prefixed hex colors (3, 6 or 8 digits), 3 or 4 comma-delimited decimal
+ * values, color names, and CSS <code>rgb()</code>, <code>rgba()</code>,
+ * <code>hsl()</code> and <code>hsla()</code> functions, whose arguments are
+ * never reported as comma-delimited values. Literals other than functions
+ * must not be part of a longer word or number. Since names are ordinary
+ * words, they are only reported in a value position - after a
+ * <code>:</code> or <code>=</code>, or alone inside quotes - so prose and
+ * identifiers such as <code>Color red</code> are not colors. Text is
+ * streamed through a fixed-size buffer, so memory use does not depend on the
+ * size of the input.
+ * <p>
+ * Characters above 127 are treated as word characters, so offsets into
+ * memory-mapped files are byte offsets and literals are found in any
+ * ASCII-compatible encoding.
+ *
+ * @author Tim Boudreau
+ * @since 1.6
+ */
+public final class ColorLiteralScanner {
+
+    /**
+     * Candidates longer than this (e.g. long runs of whitespace between
+     * comma-delimited values) are ignored.
+     */
+    private static final int MAX_LITERAL = 64;
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final long MAX_MAPPING = 64L * 1024 * 1024;
+
+    private static final int NONE = 0;
+    private static final int HEX = 1;
+    private static final int DECIMAL = 2;
+    /** A decimal candidate followed by a period, which may start a fraction */
+    private static final int DECIMAL_DOT = 3;
+    private static final int IDENTIFIER = 4;
+    /** From the opening parenthesis of a CSS color function to the closing one */
+    private static final int FUNCTION = 5;
+
+    private final LiteralConsumer consumer;
+    private final char[] buffer = new char[MAX_LITERAL];
+    private final CharBuffer candidate = CharBuffer.wrap(buffer);
+    private int state = NONE;
+    private int length;
+    /** The length of the candidate without trailing whitespace */
+    private int trimmed;
+    private boolean overflow;
+    private long start;
+    private char prev = ' ';
+    /** The last character other than a space or tab */
+    private char significant = ' ';
+    /** The character before the candidate, ignoring spaces and tabs */
+    private char before;
+    private long count;
+
+    private ColorLiteralScanner(LiteralConsumer consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Receives the color literals found by a scan.
+     */
+    public interface LiteralConsumer {
+
+        /**
+         * Called for each color literal, in order of occurrence.
+         *
+         * @param offset The offset of the literal - in characters for a
+         * Reader, in bytes for a file
+         * @param length The length of the literal, excluding any trailing
+         * whitespace
+         * @param format The format the literal is in
+         * @param argb The color as packed ARGB
+         */
+        void literal(long offset, int length, ColorParser format, int argb);
+    }
+
+    /**
+     * Scan all text available from a reader. The reader is not closed.
+     *
+     * @param reader A reader
+     * @param consumer Called for each literal
+     * @return The number of literals found
+     * @throws IOException If reading fails
+     */
+    public static long scan(Reader reader, LiteralConsumer consumer) throws IOException {
+        ColorLiteralScanner scanner = new ColorLiteralScanner(consumer);
+        char[] chars = new char[READ_BUFFER_SIZE];
+        long pos = 0;
+        int read;
+        while ((read = reader.read(chars)) != -1) {
+            for (int i = 0; i < read; i++) {
+                scanner.feed(chars[i], pos++);
+            }
+        }
+        return scanner.finish();
+    }
+
+    /**
+     * Scan a file by memory-mapping it in windows of limited size. The
+     * channel is not closed.
+     *
+     * @param channel A readable file channel
+     * @param consumer Called for each literal
+     * @return The number of literals found
+     * @throws IOException If reading fails
+     */
+    public static long scan(FileChannel channel, LiteralConsumer consumer) throws IOException {
+        ColorLiteralScanner scanner = new ColorLiteralScanner(consumer);
+        long size = channel.size();
+        for (long window = 0; window < size; window += MAX_MAPPING) {
+            int windowSize = (int) Math.min(MAX_MAPPING, size - window);
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY,
+                    window, windowSize);
+            for (int i = 0; i < windowSize; i++) {
+                scanner.feed((char) (bytes.get(i) & 0xFF), window + i);
+            }
+        }
+        return scanner.finish();
+    }
+
+    /**
+     * Scan a file by memory-mapping it.
+     *
+     * @param file A file
+     * @param consumer Called for each literal
+     * @return The number of literals found
+     * @throws IOException If reading fails
+     */
+    public static long scan(Path file, LiteralConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return scan(channel, consumer);
+        }
+    }
+
+    private void feed(char c, long pos) {
+        char lastSignificant = significant;
+        if (c != ' ' && c != '\t') {
+            significant = c;
+        }
+        switch (state) {
+            case HEX:
+                if (isHexDigit(c)) {
+                    append(c);
+                    return;
+                }
+                endCandidate(c);
+                break;
+            case DECIMAL:
+                if (c == ',' || c == ' ' || c == '\t') {
+                    append(c);
+                    return;
+                }
+                if (isDigit(c)) {
+                    if (trimmed == length || buffer[trimmed - 1] == ',') {
+                        append(c);
+                        return;
+                    }
+                    // Values separated only by whitespace are separate
+                    // literals - end this one and start another here
+                    endCandidate(c);
+                    break;
+                }
+                if (c == '.' && trimmed == length) {
+                    // Either the end of a sentence or a fraction; the next
+                    // character decides
+                    state = DECIMAL_DOT;
+                    prev = c;
+                    return;
+                }
+                endCandidate(c);
+                break;
+            case DECIMAL_DOT:
+                if (isDigit(c)) {
+                    state = NONE;
+                } else {
+                    state = DECIMAL;
+                    endCandidate('.');
+                }
+                break;
+            case IDENTIFIER:
+                if (ColorParser.isLetter(c)) {
+                    append(c);
+                    return;
+                }
+                if (c == '(') {
+                    if (isColorFunction()) {
+                        state = FUNCTION;
+                        append(c);
+                        return;
+                    }
+                    // Some other function - a name before it is not a color
+                    state = NONE;
+                    break;
+                }
+                endCandidate(c);
+                break;
+            case FUNCTION:
+                if (c == ')') {
+                    append(c);
+                    endCandidate(' ');
+                    return;
+                }
+                if (length < MAX_LITERAL && c != '(' && c != ';' && c != '{'
+                        && c != '}' && c != '\n') {
+                    append(c);
+                    return;
+                }
+                // Not a color, and its arguments are not literals either
+                state = NONE;
+                break;
+            default:
+                break;
+        }
+        before = lastSignificant;
+        if (c == '#' && !isWordChar(prev) && prev != '#') {
+            beginCandidate(HEX, c, pos);
+        } else if (isDigit(c) && !isWordChar(prev) && prev != '.' && prev != '#'
+                && prev != ',') {
+            beginCandidate(DECIMAL, c, pos);
+        } else if (ColorParser.isLetter(c) && !isWordChar(prev) && prev != '#'
+                && prev != '-') {
+            beginCandidate(IDENTIFIER, c, pos);
+        }
+        prev = c;
+    }
+
+    private long finish() {
+        if (state == DECIMAL_DOT) {
+            state = DECIMAL;
+            endCandidate('.');
+        } else if (state != NONE) {
+            endCandidate(' ');
+        }
+        return count;
+    }
+
+    private void beginCandidate(int state, char c, long pos) {
+        this.state = state;
+        start = pos;
+        length = 0;
+        trimmed = 0;
+        overflow = false;
+        append(c);
+    }
+
+    private void append(char c) {
+        if (length == MAX_LITERAL) {
+            overflow = true;
+        } else {
+            buffer[length++] = c;
+            if (c != ' ' && c != '\t') {
+                trimmed = length;
+            }
+        }
+        prev = c;
+    }
+
+    /**
+     * Parse the candidate, if the character following its last non-whitespace
+     * character ends a word.
+     *
+     * @param next The character following the candidate
+     */
+    private void endCandidate(char next) {
+        int kind = state;
+        state = NONE;
+        int end = trimmed;
+        char after = end < length ? buffer[end] : next;
+        if (overflow || (kind != FUNCTION && (isWordChar(after)
+                || (kind != DECIMAL && after == '#')
+                || (kind == IDENTIFIER && after == '-')))) {
+            return;
+        }
+        if (kind == IDENTIFIER && !isValuePosition(after)) {
+            return;
+        }
+        long result = ColorParser.scan(candidate, 0, end);
+        if (result != ColorParser.NO_MATCH) {
+            ColorParser format = ColorParser.format(result);
+            if (accepts(kind, format)) {
+                count++;
+                consumer.literal(start, end, format, ColorParser.argb(result));
+            }
+        }
+    }
+
+    /**
+     * Determine if a candidate parsed in a format that can start the way it
+     * did - ColorParser also accepts hex without a <code>#</code>, which
+     * would make words like "bad" colors.
+     */
+    private static boolean accepts(int kind, ColorParser format) {
+        switch (kind) {
+            case HEX:
+                return format.isHex();
+            case DECIMAL:
+                return format == ColorParser.COMMA_DELIMITED_RGB
+                        || format == ColorParser.COMMA_DELIMITED_RGBA;
+            case IDENTIFIER:
+                return format == ColorParser.NAMED;
+            default:
+                return format == ColorParser.CSS_RGB
+                        || format == ColorParser.CSS_HSL;
+        }
+    }
+
+    /**
+     * Determine if a name is where a value is expected rather than in prose
+     * or an identifier.
+     *
+     * @param after The character following the name
+     */
+    private boolean isValuePosition(char after) {
+        return before == ':' || before == '='
+                || ((before == '"' || before == '\'') && after == before);
+    }
+
+    private boolean isColorFunction() {
+        return ColorParser.keyword(candidate, 0, length, "rgb")
+                || ColorParser.keyword(candidate, 0, length, "rgba")
+                || ColorParser.keyword(candidate, 0, length, "hsl")
+                || ColorParser.keyword(candidate, 0, length, "hsla");
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isWordChar(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                || c == '_' || c > 127;
+    }
+}
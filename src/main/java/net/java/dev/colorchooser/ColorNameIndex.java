@@ -0,0 +1,377 @@
+/*
+ * Copyright 2010-2022 Tim Boudreau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.java.dev.colorchooser;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Immutable index from ARGB values to color names - an open-addressing table
+ * of int keys, so lookups are constant-time and allocate nothing.
+ * <p>
+ * Where several colors share a value, the first table added wins, and within
+ * a table the alphabetically first name - so <code>aqua</code> rather than
+ * <code>cyan</code>, and <code>gray</code> rather than <code>grey</code>,
+ * whatever order the table lists them in.
+ * <p>
+ * Display names come from the Swing, SVG and system colors, in that order,
+ * indexed once per locale, then from the palettes created with
+ * <code>Palette.createPredefinedPalette()</code>, merged into a single index
+ * when a name is next looked up - so creating a palette costs nothing until
+ * then, and its names go when the palette is collected.
+ *
+ * @author Tim Boudreau
+ */
+final class ColorNameIndex {
+
+    private final int[] keys;
+    /** Null where a slot is empty, since 0 is a valid key */
+    private final String[] names;
+    private final int mask;
+    private final int size;
+
+    private ColorNameIndex(int[] keys, String[] names, int size) {
+        this.keys = keys;
+        this.names = names;
+        this.mask = keys.length - 1;
+        this.size = size;
+    }
+
+    private static int hash(int argb) {
+        int h = argb * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Get the name of a color.
+     *
+     * @param argb The ARGB value
+     * @return The name, or null
+     */
+    String get(int argb) {
+        for (int i = hash(argb) & mask;; i = (i + 1) & mask) {
+            String name = names[i];
+            if (name == null || keys[i] == argb) {
+                return name;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    interface EntryConsumer {
+
+        void accept(int argb, String name);
+    }
+
+    /**
+     * Pass each value and name to a consumer, in no particular order.
+     */
+    void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (names[i] != null) {
+                consumer.accept(keys[i], names[i]);
+            }
+        }
+    }
+
+    static final class Builder {
+
+        private int[] keys = new int[64];
+        private String[] names = new String[64];
+        /** The add() call each slot was filled by */
+        private int[] tables = new int[64];
+        private int size;
+        private int table;
+
+        /**
+         * Add the colors in a table which are not already present.
+         *
+         * @param colors The colors
+         * @param displayNames Whether to index display names rather than
+         * names
+         * @return this
+         */
+        Builder add(NamedColor[] colors, boolean displayNames) {
+            table++;
+            for (NamedColor c : colors) {
+                put(c.getRGB(), displayNames ? c.getDisplayName() : c.getName());
+            }
+            return this;
+        }
+
+        /**
+         * Add the colors in a table which are not already present.
+         *
+         * @param colors The colors
+         * @return this
+         */
+        Builder add(PaletteTable colors) {
+            table++;
+            // one String per distinct name, not per entry
+            String[] names = new String[colors.nameCount()];
+            for (int i = 0; i < colors.size(); i++) {
+                int id = colors.nameIdAt(i);
+                if (id >= 0) {
+                    if (names[id] == null) {
+                        names[id] = colors.name(id);
+                    }
+                    put(colors.rgbAt(i), names[id]);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Add the entries of another index which are not already present.
+         *
+         * @param index An index
+         * @return this
+         */
+        Builder add(ColorNameIndex index) {
+            table++;
+            index.forEach(this::put);
+            return this;
+        }
+
+        private void put(int argb, String name) {
+            if (name == null) {
+                return;
+            }
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = hash(argb) & mask;
+            while (names[i] != null) {
+                if (keys[i] == argb) {
+                    if (tables[i] == table && name.compareTo(names[i]) < 0) {
+                        names[i] = name;
+                    }
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = argb;
+            names[i] = name;
+            tables[i] = table;
+            size++;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            String[] oldNames = names;
+            int[] oldTables = tables;
+            int current = table;
+            keys = new int[oldKeys.length * 2];
+            names = new String[oldKeys.length * 2];
+            tables = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldNames[i] != null) {
+                    table = oldTables[i];
+                    put(oldKeys[i], oldNames[i]);
+                }
+            }
+            table = current;
+        }
+
+        ColorNameIndex build() {
+            return new ColorNameIndex(keys.clone(), names.clone(), size);
+        }
+    }
+
+    /** Palettes whose names are looked up after the built-in ones, guarded
+     * by the class lock */
+    private static final List<Registration> registered = new ArrayList<>();
+    /** Where registrations go when their palettes are collected */
+    private static final ReferenceQueue<PredefinedPalette> collected = new ReferenceQueue<>();
+    /** Incremented whenever a palette is registered or unregistered */
+    private static volatile int generation;
+    private static int removals;
+    private static volatile Display builtIn;
+    private static volatile Display merged;
+
+    /**
+     * An index and what it was built for.
+     */
+    private static final class Display {
+
+        final ColorNameIndex index;
+        final Locale locale;
+        final int generation;
+        final int removals;
+        /** How many registrations, from the first, are included */
+        final int covered;
+
+        Display(ColorNameIndex index, Locale locale, int generation, int removals, int covered) {
+            this.index = index;
+            this.locale = locale;
+            this.generation = generation;
+            this.removals = removals;
+            this.covered = covered;
+        }
+    }
+
+    /**
+     * A palette held weakly, so registering it does not keep its colors
+     * reachable after the application has dropped it.
+     */
+    private static final class Registration extends WeakReference<PredefinedPalette> {
+
+        Registration(PredefinedPalette palette) {
+            super(palette, collected);
+        }
+    }
+
+    /**
+     * Get the display name of a color in any of the built-in or registered
+     * palettes.
+     *
+     * @param argb The ARGB value
+     * @return The name, or null
+     */
+    static String displayName(int argb) {
+        return display().get(argb);
+    }
+
+    /**
+     * Get the display names of the Swing, SVG and system colors in the
+     * default locale.
+     */
+    private static ColorNameIndex builtIn() {
+        Locale locale = Locale.getDefault();
+        Display display = builtIn;
+        if (display == null || !display.locale.equals(locale)) {
+            ColorNameIndex index = new Builder()
+                    .add(PredefinedPalette.getSwingColors(), true)
+                    .add(PredefinedPalette.svgColors(), true)
+                    .add(PredefinedPalette.getSystemColors(), true).build();
+            builtIn = display = new Display(index, locale, 0, 0, 0);
+        }
+        return display.index;
+    }
+
+    /**
+     * Get an index of all display names in the default locale, built-in and
+     * registered; it is replaced when the locale changes or a palette is
+     * registered or collected, so callers can
+     * compare it with the one they saw last to know when anything derived
+     * from it is stale. While nothing has changed this is a couple of
+     * volatile reads; newly registered palettes are added to the previous
+     * index, which is only rebuilt from scratch when a palette has gone or
+     * the locale has changed.
+     */
+    static ColorNameIndex display() {
+        expunge();
+        Display display = merged;
+        if (display != null && display.generation == generation
+                && display.locale.equals(Locale.getDefault())) {
+            return display.index;
+        }
+        return rebuild();
+    }
+
+    private static synchronized ColorNameIndex rebuild() {
+        Locale locale = Locale.getDefault();
+        Display display = merged;
+        if (display != null && display.generation == generation
+                && display.locale.equals(locale)) {
+            return display.index;
+        }
+        // registrations are only ever appended, so unless one was removed
+        // the previous index covers a prefix of the list
+        boolean incremental = display != null && display.removals == removals
+                && display.locale.equals(locale);
+        Builder builder = new Builder().add(incremental ? display.index : builtIn());
+        for (int i = incremental ? display.covered : 0; i < registered.size(); i++) {
+            PredefinedPalette palette = registered.get(i).get();
+            if (palette != null) {
+                builder.add(palette.nameIndex());
+            }
+        }
+        merged = display = new Display(builder.build(), locale, generation,
+                removals, registered.size());
+        return display.index;
+    }
+
+    /**
+     * Include the colors of a palette in display name lookups for as long
+     * as the palette is reachable. Its names are indexed when first needed.
+     *
+     * @param palette A palette
+     */
+    static synchronized void register(PredefinedPalette palette) {
+        expunge();
+        registered.add(new Registration(palette));
+        generation++;
+    }
+
+    /**
+     * Stop including a palette's colors, as if it had been collected.
+     *
+     * @param palette A palette
+     */
+    static synchronized void unregister(PredefinedPalette palette) {
+        for (Registration reg : registered) {
+            if (reg.get() == palette) {
+                reg.enqueue();
+            }
+        }
+        expunge();
+    }
+
+    /**
+     * Drop the registrations of palettes which have been collected - a
+     * single volatile read when there are none.
+     */
+    private static void expunge() {
+        Reference<? extends PredefinedPalette> ref = collected.poll();
+        if (ref != null) {
+            synchronized (ColorNameIndex.class) {
+                for (; ref != null; ref = collected.poll()) {
+                    if (registered.remove((Registration) ref)) {
+                        removals++;
+                        generation++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the CSS / SVG name of a color.
+     *
+     * @param argb The ARGB value
+     * @return The name, or null
+     */
+    static String svgName(int argb) {
+        return SvgHolder.INDEX.get(argb);
+    }
+
+    private static final class SvgHolder {
+
+        static final ColorNameIndex INDEX = new Builder()
+                .add(PredefinedPalette.svgColors(), false).build();
+    }
+}
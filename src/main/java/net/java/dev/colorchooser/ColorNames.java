@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010-2022 Tim Boudreau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.java.dev.colorchooser;
+
+/**
+ * Case-insensitive lookup of the SVG / CSS color names, using a trie stored in
+ * a few flat arrays (one slot per node, children as a linked list of
+ * siblings), built on first use from the SVG palette.
+ *
+ * @author Tim Boudreau
+ */
+final class ColorNames {
+
+    private static final int ROOT = 0;
+
+    private final char[] label;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] argb;
+    private final boolean[] terminal;
+    private int size = 1;
+
+    private ColorNames(int capacity) {
+        label = new char[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        argb = new int[capacity];
+        terminal = new boolean[capacity];
+        firstChild[ROOT] = -1;
+    }
+
+    private static final class Holder {
+
+        static final ColorNames INSTANCE = build();
+    }
+
+    private static ColorNames build() {
+        NamedColor[] colors = PredefinedPalette.svgColors();
+        int capacity = 1 + "transparent".length();
+        for (NamedColor c : colors) {
+            capacity += c.getName().length();
+        }
+        ColorNames result = new ColorNames(capacity);
+        for (NamedColor c : colors) {
+            result.add(c.getName(), c.getRGB());
+        }
+        // CSS keyword; not in the SVG palette since it is not really a color
+        result.add("transparent", 0);
+        return result;
+    }
+
+    private void add(String name, int value) {
+        int node = ROOT;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            int child = child(node, c);
+            if (child < 0) {
+                child = size++;
+                label[child] = c;
+                firstChild[child] = -1;
+                nextSibling[child] = firstChild[node];
+                firstChild[node] = child;
+            }
+            node = child;
+        }
+        if (!terminal[node]) {
+            // The first of duplicate names wins
+            terminal[node] = true;
+            argb[node] = value;
+        }
+    }
+
+    private int child(int node, char c) {
+        for (int n = firstChild[node]; n >= 0; n = nextSibling[n]) {
+            if (label[n] == c) {
+                return n;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Look up a color name, ignoring case.
+     *
+     * @return ColorParser.NO_MATCH, or the packed ARGB value in the low 32
+     * bits and a set bit 32
+     */
+    static long lookup(CharSequence s, int start, int end) {
+        return Holder.INSTANCE.find(s, start, end);
+    }
+
+    private long find(CharSequence s, int start, int end) {
+        int node = ROOT;
+        for (int i = start; i < end && node >= 0; i++) {
+            char c = s.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            node = child(node, c);
+        }
+        if (node <= ROOT || !terminal[node]) {
+            return ColorParser.NO_MATCH;
+        }
+        return (1L << 32) | (argb[node] & 0xFFFFFFFFL);
+    }
+}
@@ -17,11 +17,15 @@
 package net.java.dev.colorchooser;
 
 import java.awt.Color;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.IOException;
+import java.nio.CharBuffer;
 
 /**
  * Parses colors from text, using several patterns, for clipboard use.
+ * Besides hex and comma-delimited values, understands the CSS
+ * <code>rgb()</code>, <code>rgba()</code>, <code>hsl()</code> and
+ * <code>hsla()</code> functions in both the comma-delimited and the CSS Color 4
+ * space-delimited syntax, and the SVG / CSS color names.
  *
  * @author Tim Boudreau
  */
@@ -30,70 +34,260 @@ public enum ColorParser {
     HEX_RGBA,
     COMMA_DELIMITED_RGB,
     HEX_RGB,
-    HEX_RGB_TRUNC;
-
-    static final Pattern COMMA_DELIMITED_RGB_WITH_ALPHA_PATTERN
-            = Pattern.compile("^(\\d{1,3})\\s*?,\\s*?(\\d{1,3})\\s*?,\\s*?(\\d{1,3})\\s*?,\\s*?(\\d{1,3})\\s*$");
-    static final Pattern HEX_RGBA_PATTERN
-            = Pattern.compile("^#?([a-fA-F0-9]{2})([a-fA-F0-9]{2})([a-fA-F0-9]{2})([a-fA-F0-9]{2})$");
-    static final Pattern COMMA_DELIMITED_RGB_PATTERN
-            = Pattern.compile("^(\\d{1,3})\\s*?,\\s*?(\\d{1,3})\\s*?,\\s*?(\\d{1,3})\\s*$");
-    static final Pattern HEX_RGB_PATTERN
-            = Pattern.compile("^#?([a-fA-F0-9]{2})([a-fA-F0-9]{2})([a-fA-F0-9]{2})$");
-    static final Pattern HEX_RGB_TRUNC_PATTERN
-            = Pattern.compile("^#?([a-fA-F0-9])([a-fA-F0-9])([a-fA-F0-9])$");
-
-    private String toHexString(int val) {
-        String result = Integer.toHexString(val);
+    HEX_RGB_TRUNC,
+    /**
+     * CSS <code>rgb()</code> or <code>rgba()</code> functional notation.
+     *
+     * @since 1.6
+     */
+    CSS_RGB,
+    /**
+     * CSS <code>hsl()</code> or <code>hsla()</code> functional notation.
+     *
+     * @since 1.6
+     */
+    CSS_HSL,
+    /**
+     * An SVG / CSS color name such as <code>cornflowerblue</code>. Colors
+     * which have no name are formatted as hex.
+     *
+     * @since 1.6
+     */
+    NAMED;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    /**
+     * The two lower-case hex digits for every byte value.
+     */
+    private static final char[] HEX_PAIRS = new char[512];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            HEX_PAIRS[i * 2] = HEX_DIGITS[i >> 4];
+            HEX_PAIRS[i * 2 + 1] = HEX_DIGITS[i & 0xF];
+        }
+    }
+
+    private void appendHex(Appendable out, int val) throws IOException {
         if (isShorthand()) {
-            result = result.substring(0, 1);
+            // The first digit of the unpadded hex string
+            out.append(HEX_PAIRS[val < 16 ? val * 2 + 1 : val * 2]);
         } else {
-            if (result.length() < 2) {
-                result = "0" + result;
-            }
+            out.append(HEX_PAIRS[val * 2]).append(HEX_PAIRS[val * 2 + 1]);
         }
-        return result;
     }
 
     public String toString(Color color) {
+        return appendTo(new StringBuilder(24), color.getRGB()).toString();
+    }
+
+    /**
+     * Append a color in this format to a StringBuilder.
+     *
+     * @param sb A string builder
+     * @param argb The color as packed ARGB
+     * @return the string builder
+     * @since 1.6
+     */
+    public StringBuilder appendTo(StringBuilder sb, int argb) {
+        try {
+            appendTo((Appendable) sb, argb);
+        } catch (IOException ex) {
+            throw new AssertionError(ex);
+        }
+        return sb;
+    }
+
+    /**
+     * Append a color in this format to an Appendable, such as a Writer, without
+     * creating any intermediate strings.
+     *
+     * @param <A> The type
+     * @param out Where to write
+     * @param argb The color as packed ARGB
+     * @return the passed Appendable
+     * @throws IOException If the Appendable throws it
+     * @since 1.6
+     */
+    public <A extends Appendable> A appendTo(A out, int argb) throws IOException {
+        int alpha = (argb >>> 24) & 0xFF;
+        int red = (argb >> 16) & 0xFF;
+        int green = (argb >> 8) & 0xFF;
+        int blue = argb & 0xFF;
         switch (this) {
             case COMMA_DELIMITED_RGB:
-                return color.getRed() + "," + color.getGreen()
-                        + "," + color.getBlue();
+                appendDecimal(out, red).append(',');
+                appendDecimal(out, green).append(',');
+                appendDecimal(out, blue);
+                break;
             case COMMA_DELIMITED_RGBA:
-                return color.getRed() + "," + color.getGreen()
-                        + "," + color.getBlue()
-                        + "," + color.getAlpha();
+                appendDecimal(out, red).append(',');
+                appendDecimal(out, green).append(',');
+                appendDecimal(out, blue).append(',');
+                appendDecimal(out, alpha);
+                break;
             case HEX_RGB:
             case HEX_RGB_TRUNC:
-                return '#' + toHexString(color.getRed())
-                        + toHexString(color.getGreen())
-                        + toHexString(color.getBlue());
+                out.append('#');
+                appendHex(out, red);
+                appendHex(out, green);
+                appendHex(out, blue);
+                break;
             case HEX_RGBA:
-                return '#' + toHexString(color.getRed())
-                        + toHexString(color.getGreen())
-                        + toHexString(color.getBlue())
-                        + toHexString(color.getAlpha());
+                out.append('#');
+                appendHex(out, red);
+                appendHex(out, green);
+                appendHex(out, blue);
+                appendHex(out, alpha);
+                break;
+            case CSS_RGB:
+                appendCssFunction(out, argb, false);
+                break;
+            case CSS_HSL:
+                appendCssFunction(out, argb, true);
+                break;
+            case NAMED:
+                String name = nameOf(argb);
+                if (name == null) {
+                    appendMinimalTo(out, argb);
+                } else {
+                    out.append(name);
+                }
+                break;
             default:
                 throw new AssertionError(this);
         }
+        return out;
+    }
+
+    private static Appendable appendDecimal(Appendable out, int val) throws IOException {
+        if (val >= 100) {
+            out.append((char) ('0' + val / 100));
+        }
+        if (val >= 10) {
+            out.append((char) ('0' + (val / 10) % 10));
+        }
+        return out.append((char) ('0' + val % 10));
+    }
+
+    private static void appendCssFunction(Appendable out, int argb, boolean hsl) throws IOException {
+        int alpha = (argb >>> 24) & 0xFF;
+        int red = (argb >> 16) & 0xFF;
+        int green = (argb >> 8) & 0xFF;
+        int blue = argb & 0xFF;
+        out.append(hsl ? "hsl" : "rgb");
+        if (alpha != 255) {
+            out.append('a');
+        }
+        out.append('(');
+        if (hsl) {
+            appendDecimal(out, hslHue(argb), 2);
+            appendDecimal(out.append(", "), hslSaturation(argb), 2);
+            appendDecimal(out.append("%, "), hslLightness(argb), 2);
+            out.append('%');
+        } else {
+            appendDecimal(out, red).append(", ");
+            appendDecimal(out, green).append(", ");
+            appendDecimal(out, blue);
+        }
+        if (alpha != 255) {
+            appendDecimal(out.append(", "), alpha / 255D, 3);
+        }
+        out.append(')');
+    }
+
+    private static void appendDecimal(Appendable out, double value, int decimals) throws IOException {
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        long scaled = Math.round(value * scale);
+        long whole = scaled / scale;
+        long digit = 1;
+        while (digit * 10 <= whole) {
+            digit *= 10;
+        }
+        for (; digit > 0; digit /= 10) {
+            out.append((char) ('0' + (whole / digit) % 10));
+        }
+        long fraction = scaled % scale;
+        if (fraction != 0) {
+            out.append('.');
+            for (digit = scale / 10; digit > 0 && fraction != 0; digit /= 10) {
+                out.append((char) ('0' + fraction / digit));
+                fraction %= digit;
+            }
+        }
+    }
+
+    private static String nameOf(int argb) {
+        if (argb == 0) {
+            return "transparent";
+        }
+        return ColorNameIndex.svgName(argb);
     }
 
     static Color parse(String s) {
         if (s == null) {
             return null;
         }
-        for (ColorParser cp : values()) {
-            Pattern p = cp.pattern();
-            Matcher m = p.matcher(s);
-            if (m.find()) {
-                Color result = cp.doParse(s, m);
-                if (result != null) {
-                    return result;
-                }
-            }
+        long result = scan(s, 0, s.length());
+        return result == NO_MATCH ? null : new Color(argb(result), true);
+    }
+
+    /**
+     * Parse a color from a range of characters, without copying them into a
+     * String - for example, directly from a <code>javax.swing.text.Segment</code>
+     * or a <code>CharBuffer</code>.
+     *
+     * @param text The characters
+     * @param start The start offset, inclusive
+     * @param end The end offset, exclusive
+     * @return A color or null if the range does not contain one in any
+     * supported format
+     * @since 1.6
+     */
+    public static Color parse(CharSequence text, int start, int end) {
+        checkRange(text.length(), start, end);
+        long result = scan(text, start, end);
+        return result == NO_MATCH ? null : new Color(argb(result), true);
+    }
+
+    /**
+     * Parse a color from a range of a character array, without copying it.
+     *
+     * @param chars The characters
+     * @param start The start offset, inclusive
+     * @param end The end offset, exclusive
+     * @return A color or null if the range does not contain one in any
+     * supported format
+     * @since 1.6
+     */
+    public static Color parse(char[] chars, int start, int end) {
+        long result = parseArgb(chars, start, end);
+        return result == NO_MATCH ? null : new Color(argb(result), true);
+    }
+
+    /**
+     * Determine if a range of characters contains a color in any supported
+     * format, without copying them into a String.
+     *
+     * @param text The characters
+     * @param start The start offset, inclusive
+     * @param end The end offset, exclusive
+     * @return true if the range can be parsed
+     * @since 1.6
+     */
+    public static boolean canParse(CharSequence text, int start, int end) {
+        checkRange(text.length(), start, end);
+        return scan(text, start, end) != NO_MATCH;
+    }
+
+    private static void checkRange(int length, int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("Bad range " + start + " to "
+                    + end + " in " + length + " characters");
         }
-        return null;
     }
 
     public boolean isHex() {
@@ -107,10 +301,18 @@ public enum ColorParser {
         }
     }
 
+    /**
+     * Determine if text in this format carries an alpha value - for the CSS
+     * functions, if it may.
+     *
+     * @return Whether this format has alpha
+     */
     public boolean containsAlpha() {
         switch (this) {
             case COMMA_DELIMITED_RGBA:
             case HEX_RGBA:
+            case CSS_RGB:
+            case CSS_HSL:
                 return true;
             default:
                 return false;
@@ -121,94 +323,648 @@ public enum ColorParser {
         return this == HEX_RGB_TRUNC;
     }
 
-    private int parseHex(String s) {
-        if (isShorthand() && s.length() == 1) {
-            s += "0";
-        }
-        return Integer.parseInt(s, 16);
-    }
-
     Color doParse(String s) {
-        Matcher m = pattern().matcher(s);
-        if (m.find()) {
-            return doParse(s, m);
+        long result = scan(s, 0, s.length());
+        if (result != NO_MATCH && format(result) == this) {
+            return new Color(argb(result), true);
         }
         return null;
     }
 
-    Color doParse(String s, Matcher m) {
-        int r, g, b;
-        int a = 255;
+    public static boolean canParse(String s) {
+        return s != null && scan(s, 0, s.length()) != NO_MATCH;
+    }
+
+    public static String toMinimalString(Color c) {
+        return appendMinimalTo(new StringBuilder(9), c.getRGB()).toString();
+    }
+
+    /**
+     * Append the shortest hex form of a color to a StringBuilder.
+     *
+     * @param sb A string builder
+     * @param argb The color as packed ARGB
+     * @return the string builder
+     * @since 1.6
+     */
+    public static StringBuilder appendMinimalTo(StringBuilder sb, int argb) {
         try {
-            if (isHex()) {
-                r = parseHex(m.group(1));
-                g = parseHex(m.group(2));
-                b = parseHex(m.group(3));
-                if (containsAlpha()) {
-                    a = parseHex(m.group(4));
+            appendMinimalTo((Appendable) sb, argb);
+        } catch (IOException ex) {
+            throw new AssertionError(ex);
+        }
+        return sb;
+    }
+
+    /**
+     * Append the shortest hex form of a color to an Appendable, without
+     * creating any intermediate strings.
+     *
+     * @param <A> The type
+     * @param out Where to write
+     * @param argb The color as packed ARGB
+     * @return the passed Appendable
+     * @throws IOException If the Appendable throws it
+     * @since 1.6
+     */
+    public static <A extends Appendable> A appendMinimalTo(A out, int argb) throws IOException {
+        if (isShorthandFriendly(argb)) {
+            return HEX_RGB_TRUNC.appendTo(out, argb);
+        }
+        if ((argb >>> 24) != 255) {
+            return HEX_RGBA.appendTo(out, argb);
+        }
+        return HEX_RGB.appendTo(out, argb);
+    }
+
+    private static boolean isShorthandFriendly(int argb) {
+        return (argb & 0xFF0F0F0F) == 0xFF000000;
+    }
+
+    /**
+     * Returned by the <code>parseArgb</code> methods when the text is not a
+     * color in any of the supported formats.
+     *
+     * @since 1.6
+     */
+    public static final long NO_MATCH = 0;
+
+    private static final ColorParser[] VALUES = values();
+
+    /**
+     * Parse a color without creating a <code>java.awt.Color</code>. The
+     * result packs the ARGB value and the format that matched into a long; use
+     * <code>isMatch()</code>, <code>argb()</code> and <code>format()</code>
+     * to unpack it.
+     *
+     * @param text Some text, or null
+     * @return NO_MATCH, or a packed result
+     * @since 1.6
+     */
+    public static long parseArgb(CharSequence text) {
+        return text == null ? NO_MATCH : scan(text, 0, text.length());
+    }
+
+    /**
+     * Parse a color from a range of characters without creating a
+     * <code>java.awt.Color</code>.
+     *
+     * @param text The characters
+     * @param start The start offset, inclusive
+     * @param end The end offset, exclusive
+     * @return NO_MATCH, or a packed result
+     * @see #parseArgb(java.lang.CharSequence)
+     * @since 1.6
+     */
+    public static long parseArgb(CharSequence text, int start, int end) {
+        checkRange(text.length(), start, end);
+        return scan(text, start, end);
+    }
+
+    /**
+     * Parse a color from a range of a character array without creating a
+     * <code>java.awt.Color</code>.
+     *
+     * @param chars The characters
+     * @param start The start offset, inclusive
+     * @param end The end offset, exclusive
+     * @return NO_MATCH, or a packed result
+     * @see #parseArgb(java.lang.CharSequence)
+     * @since 1.6
+     */
+    public static long parseArgb(char[] chars, int start, int end) {
+        checkRange(chars.length, start, end);
+        return scan(CharBuffer.wrap(chars, start, end - start), 0, end - start);
+    }
+
+    /**
+     * Determine if a result of <code>parseArgb</code> is a color.
+     *
+     * @param parseResult A result
+     * @return true if it is not NO_MATCH
+     * @since 1.6
+     */
+    public static boolean isMatch(long parseResult) {
+        return parseResult != NO_MATCH;
+    }
+
+    /**
+     * Get the packed ARGB value from a successful result of
+     * <code>parseArgb</code>.
+     *
+     * @param parseResult A result
+     * @return The color as packed ARGB
+     * @since 1.6
+     */
+    public static int argb(long parseResult) {
+        return (int) parseResult;
+    }
+
+    /**
+     * Get the format that matched from a successful result of
+     * <code>parseArgb</code>, so a color can be written back in the format it
+     * was read in.
+     *
+     * @param parseResult A result
+     * @return The format
+     * @throws IllegalArgumentException if the result is NO_MATCH
+     * @since 1.6
+     */
+    public static ColorParser format(long parseResult) {
+        int ordinal = (int) (parseResult >>> 32) - 1;
+        if (ordinal < 0 || ordinal >= VALUES.length) {
+            throw new IllegalArgumentException("Not a parse result: "
+                    + Long.toHexString(parseResult));
+        }
+        return VALUES[ordinal];
+    }
+
+    private static long result(ColorParser format, int argb) {
+        return ((long) (format.ordinal() + 1) << 32) | (argb & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Classifies and decodes the characters between start and end in a single
+     * pass, without allocating.  Accepts exactly what the original regular
+     * expressions did: hex with an optional leading #, or 3 or 4 decimal
+     * values of up to three digits separated by commas with optional
+     * whitespace around the commas and at the end; like the <code>$</code>
+     * anchor, a single trailing line terminator is ignored.  Decimal values
+     * above 255 do not match.  Any other text starting with a letter - hex
+     * or not, once it has failed to be 3, 6 or 8 hex digits - is handed off
+     * to scanIdentifier() for names and CSS functions.
+     *
+     * @return NO_MATCH, or the format ordinal + 1 in the high 32 bits and
+     * the ARGB value in the low 32 bits
+     */
+    static long scan(CharSequence s, int start, int end) {
+        end = trimLineTerminator(s, start, end);
+        int pos = start;
+        boolean hash = pos < end && s.charAt(pos) == '#';
+        if (hash) {
+            pos++;
+        }
+        // Walk the leading run of characters, accumulating both its hex
+        // value and, if it could be the first comma-delimited value,
+        // its decimal value
+        int hexValue = 0;
+        int decimalValue = 0;
+        int decimalDigits = hash ? -1 : 0;
+        int runStart = pos;
+        for (; pos < end; pos++) {
+            char c = s.charAt(pos);
+            int nibble = hexDigit(c);
+            if (nibble < 0) {
+                break;
+            }
+            if (pos - runStart < 8) {
+                hexValue = (hexValue << 4) | nibble;
+            }
+            if (decimalDigits >= 0) {
+                if (c <= '9') {
+                    decimalValue = decimalValue * 10 + nibble;
+                    decimalDigits++;
+                } else {
+                    decimalDigits = -1;
                 }
-            } else {
-                r = Integer.parseInt(m.group(1));
-                g = Integer.parseInt(m.group(2));
-                b = Integer.parseInt(m.group(3));
-                if (containsAlpha()) {
-                    a = Integer.parseInt(m.group(4));
+            }
+        }
+        int runLength = pos - runStart;
+        if (pos == end) {
+            switch (runLength) {
+                case 3:
+                    return result(HEX_RGB_TRUNC, 0xFF000000
+                            | ((hexValue & 0xF00) << 12)
+                            | ((hexValue & 0x0F0) << 8)
+                            | ((hexValue & 0x00F) << 4));
+                case 6:
+                    return result(HEX_RGB, 0xFF000000 | hexValue);
+                case 8:
+                    return result(HEX_RGBA, (hexValue << 24) | (hexValue >>> 8));
+                default:
+                    break;
+            }
+        }
+        if (!hash && start < end && isLetter(s.charAt(start))) {
+            return scanIdentifier(s, start, end);
+        }
+        if (pos == end || decimalDigits < 1 || decimalDigits > 3 || decimalValue > 255) {
+            return NO_MATCH;
+        }
+        int argb = decimalValue << 16;
+        int count = 1;
+        for (;;) {
+            pos = skipWhitespace(s, pos, end);
+            if (pos == end) {
+                break;
+            }
+            if (s.charAt(pos) != ',' || count == 4) {
+                return NO_MATCH;
+            }
+            pos = skipWhitespace(s, pos + 1, end);
+            int value = 0;
+            int digits = 0;
+            for (; pos < end && digits < 4; pos++, digits++) {
+                char c = s.charAt(pos);
+                if (c < '0' || c > '9') {
+                    break;
                 }
+                value = value * 10 + (c - '0');
             }
-            return new Color(r, g, b, a);
-        } catch (NumberFormatException e) {
-            return null;
+            if (digits == 0 || digits > 3 || value > 255) {
+                return NO_MATCH;
+            }
+            switch (count++) {
+                case 1:
+                    argb |= value << 8;
+                    break;
+                case 2:
+                    argb |= value;
+                    break;
+                default:
+                    argb |= value << 24;
+            }
+        }
+        switch (count) {
+            case 3:
+                return result(COMMA_DELIMITED_RGB, 0xFF000000 | argb);
+            case 4:
+                return result(COMMA_DELIMITED_RGBA, argb);
+            default:
+                return NO_MATCH;
         }
     }
 
-    public static boolean canParse(String s) {
-        for (ColorParser cp : values()) {
-            Pattern p = cp.pattern();
-            Matcher m = p.matcher(s);
-            if (m.find()) {
-                return true;
+    private static long scanIdentifier(CharSequence s, int start, int end) {
+        int pos = start;
+        while (pos < end && isLetter(s.charAt(pos))) {
+            pos++;
+        }
+        if (pos == end) {
+            long named = ColorNames.lookup(s, start, end);
+            return named == NO_MATCH ? NO_MATCH : result(NAMED, argb(named));
+        }
+        if (s.charAt(pos) != '(') {
+            return NO_MATCH;
+        }
+        boolean hsl;
+        if (keyword(s, start, pos, "rgb") || keyword(s, start, pos, "rgba")) {
+            hsl = false;
+        } else if (keyword(s, start, pos, "hsl") || keyword(s, start, pos, "hsla")) {
+            hsl = true;
+        } else {
+            return NO_MATCH;
+        }
+        return new CssFunction(s, pos + 1, end).scan(hsl);
+    }
+
+    /**
+     * Parses the arguments of a CSS rgb() or hsl() function, up to and
+     * including the closing parenthesis, which must end the text.
+     */
+    private static final class CssFunction {
+
+        private static final int NUMBER = 0;
+        private static final int PERCENT = 1;
+        private static final int DEG = 2;
+        private static final int RAD = 3;
+        private static final int GRAD = 4;
+        private static final int TURN = 5;
+
+        private final CharSequence s;
+        private final int end;
+        private int pos;
+        private double value;
+        private int unit;
+
+        CssFunction(CharSequence s, int pos, int end) {
+            this.s = s;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        long scan(boolean hsl) {
+            skipWhitespace();
+            if (!component(hsl)) {
+                return NO_MATCH;
+            }
+            double first = hsl ? hue() : channel();
+            int separatorStart = pos;
+            skipWhitespace();
+            boolean commas = pos < end && s.charAt(pos) == ',';
+            if (commas) {
+                pos++;
+                skipWhitespace();
+            } else if (pos == separatorStart) {
+                return NO_MATCH;
+            }
+            if (!component(false)) {
+                return NO_MATCH;
+            }
+            double second = hsl ? percentage() : channel();
+            separatorStart = pos;
+            skipWhitespace();
+            if (commas) {
+                if (pos == end || s.charAt(pos) != ',') {
+                    return NO_MATCH;
+                }
+                pos++;
+                skipWhitespace();
+            } else if (pos == separatorStart || (pos < end && s.charAt(pos) == ',')) {
+                return NO_MATCH;
+            }
+            if (!component(false)) {
+                return NO_MATCH;
+            }
+            double third = hsl ? percentage() : channel();
+            double alpha = 1;
+            skipWhitespace();
+            if (pos < end && s.charAt(pos) == (commas ? ',' : '/')) {
+                pos++;
+                skipWhitespace();
+                if (!component(false)) {
+                    return NO_MATCH;
+                }
+                alpha = alpha();
+                skipWhitespace();
+            }
+            if (pos != end - 1 || s.charAt(pos) != ')' || Double.isNaN(first)
+                    || Double.isNaN(second) || Double.isNaN(third)
+                    || Double.isNaN(alpha)) {
+                return NO_MATCH;
+            }
+            int a = (int) Math.round(alpha * 255) << 24;
+            if (hsl) {
+                return result(CSS_HSL, a | hslToRgb(first, second, third));
+            }
+            return result(CSS_RGB, a | ((int) Math.round(first) << 16)
+                    | ((int) Math.round(second) << 8) | (int) Math.round(third));
+        }
+
+        private double channel() {
+            switch (unit) {
+                case NUMBER:
+                    return clamp(value, 255);
+                case PERCENT:
+                    return clamp(value * 255 / 100, 255);
+                default:
+                    return Double.NaN;
+            }
+        }
+
+        private double alpha() {
+            switch (unit) {
+                case NUMBER:
+                    return clamp(value, 1);
+                case PERCENT:
+                    return clamp(value / 100, 1);
+                default:
+                    return Double.NaN;
+            }
+        }
+
+        private double hue() {
+            switch (unit) {
+                case NUMBER:
+                case DEG:
+                    return value;
+                case RAD:
+                    return Math.toDegrees(value);
+                case GRAD:
+                    return value * 0.9;
+                case TURN:
+                    return value * 360;
+                default:
+                    return Double.NaN;
+            }
+        }
+
+        private double percentage() {
+            switch (unit) {
+                case NUMBER:
+                case PERCENT:
+                    return clamp(value, 100);
+                default:
+                    return Double.NaN;
+            }
+        }
+
+        private static double clamp(double value, double max) {
+            return Math.max(0, Math.min(max, value));
+        }
+
+        private void skipWhitespace() {
+            pos = ColorParser.skipWhitespace(s, pos, end);
+        }
+
+        /**
+         * Read a CSS number with an optional percent sign or, if angle is
+         * true, angle unit.
+         */
+        private boolean component(boolean angle) {
+            boolean negative = false;
+            if (pos < end && (s.charAt(pos) == '-' || s.charAt(pos) == '+')) {
+                negative = s.charAt(pos++) == '-';
+            }
+            double result = 0;
+            int digits = 0;
+            for (; pos < end && isDigit(s.charAt(pos)); pos++, digits++) {
+                result = result * 10 + (s.charAt(pos) - '0');
             }
+            if (pos < end && s.charAt(pos) == '.') {
+                pos++;
+                for (double scale = 0.1; pos < end && isDigit(s.charAt(pos)); pos++, digits++, scale /= 10) {
+                    result += (s.charAt(pos) - '0') * scale;
+                }
+            }
+            if (digits == 0) {
+                return false;
+            }
+            if (pos + 1 < end && (s.charAt(pos) == 'e' || s.charAt(pos) == 'E')
+                    && (isDigit(s.charAt(pos + 1)) || (pos + 2 < end
+                    && (s.charAt(pos + 1) == '-' || s.charAt(pos + 1) == '+')
+                    && isDigit(s.charAt(pos + 2))))) {
+                pos++;
+                boolean negativeExponent = s.charAt(pos) == '-';
+                if (s.charAt(pos) == '-' || s.charAt(pos) == '+') {
+                    pos++;
+                }
+                int exponent = 0;
+                for (; pos < end && isDigit(s.charAt(pos)) && exponent < 1000; pos++) {
+                    exponent = exponent * 10 + (s.charAt(pos) - '0');
+                }
+                result *= Math.pow(10, negativeExponent ? -exponent : exponent);
+            }
+            value = negative ? -result : result;
+            unit = NUMBER;
+            if (pos < end && s.charAt(pos) == '%') {
+                pos++;
+                unit = PERCENT;
+            } else if (pos < end && isLetter(s.charAt(pos))) {
+                int unitStart = pos;
+                while (pos < end && isLetter(s.charAt(pos))) {
+                    pos++;
+                }
+                if (!angle) {
+                    return false;
+                } else if (keyword(s, unitStart, pos, "deg")) {
+                    unit = DEG;
+                } else if (keyword(s, unitStart, pos, "rad")) {
+                    unit = RAD;
+                } else if (keyword(s, unitStart, pos, "grad")) {
+                    unit = GRAD;
+                } else if (keyword(s, unitStart, pos, "turn")) {
+                    unit = TURN;
+                } else {
+                    return false;
+                }
+            }
+            return true;
         }
-        return false;
     }
 
-    public static String toMinimalString(Color c) {
-        if (isShorthandFriendly(c)) {
-            return HEX_RGB_TRUNC.toString(c);
+    /**
+     * Convert hue in degrees, saturation and lightness in percent to RGB, as
+     * specified by CSS Color 4.
+     */
+    static int hslToRgb(double hue, double saturation, double lightness) {
+        double h = ((hue % 360) + 360) % 360;
+        double sat = saturation / 100;
+        double l = lightness / 100;
+        double a = sat * Math.min(l, 1 - l);
+        return (hslComponent(0, h, a, l) << 16)
+                | (hslComponent(8, h, a, l) << 8)
+                | hslComponent(4, h, a, l);
+    }
+
+    /**
+     * Get the CSS hue of a color in degrees, from 0 to 360.
+     */
+    static double hslHue(int argb) {
+        double r = ((argb >> 16) & 0xFF) / 255D;
+        double g = ((argb >> 8) & 0xFF) / 255D;
+        double b = (argb & 0xFF) / 255D;
+        double max = Math.max(r, Math.max(g, b));
+        double d = max - Math.min(r, Math.min(g, b));
+        if (d == 0) {
+            return 0;
+        }
+        double h;
+        if (max == r) {
+            h = ((g - b) / d) % 6;
+        } else if (max == g) {
+            h = (b - r) / d + 2;
+        } else {
+            h = (r - g) / d + 4;
         }
-        if (c.getAlpha() != 255) {
-            return HEX_RGBA.toString(c);
+        h *= 60;
+        return h < 0 ? h + 360 : h;
+    }
+
+    /**
+     * Get the CSS saturation of a color in percent.
+     */
+    static double hslSaturation(int argb) {
+        int max = Math.max((argb >> 16) & 0xFF, Math.max((argb >> 8) & 0xFF, argb & 0xFF));
+        int min = Math.min((argb >> 16) & 0xFF, Math.min((argb >> 8) & 0xFF, argb & 0xFF));
+        if (max == min) {
+            return 0;
         }
-        return HEX_RGB.toString(c);
+        double d = (max - min) / 255D;
+        double l = (max + min) / 510D;
+        return d / (1 - Math.abs(2 * l - 1)) * 100;
     }
 
-    private static boolean isShorthandFriendly(Color c) {
-        if (c.getAlpha() != 255) {
+    /**
+     * Get the CSS lightness of a color in percent.  Together with
+     * <code>hslHue()</code> and <code>hslSaturation()</code>, the inverse of
+     * <code>hslToRgb()</code>, computed without allocating.
+     */
+    static double hslLightness(int argb) {
+        int max = Math.max((argb >> 16) & 0xFF, Math.max((argb >> 8) & 0xFF, argb & 0xFF));
+        int min = Math.min((argb >> 16) & 0xFF, Math.min((argb >> 8) & 0xFF, argb & 0xFF));
+        return (max + min) / 510D * 100;
+    }
+
+    private static int hslComponent(int n, double h, double a, double l) {
+        double k = (n + h / 30) % 12;
+        double value = l - a * Math.max(-1, Math.min(k - 3, Math.min(9 - k, 1)));
+        return (int) Math.round(value * 255);
+    }
+
+    static boolean keyword(CharSequence s, int start, int end, String keyword) {
+        if (end - start != keyword.length()) {
             return false;
         }
-        return isShorthandFriendly(c.getRed())
-                && isShorthandFriendly(c.getGreen())
-                && isShorthandFriendly(c.getBlue());
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = s.charAt(start + i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            if (c != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private static boolean isShorthandFriendly(int val) {
-        return (val & 0xF0) == val;
+    static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
     }
 
-    Pattern pattern() {
-        switch (this) {
-            case COMMA_DELIMITED_RGB:
-                return COMMA_DELIMITED_RGB_PATTERN;
-            case COMMA_DELIMITED_RGBA:
-                return COMMA_DELIMITED_RGB_WITH_ALPHA_PATTERN;
-            case HEX_RGB:
-                return HEX_RGB_PATTERN;
-            case HEX_RGBA:
-                return HEX_RGBA_PATTERN;
-            case HEX_RGB_TRUNC:
-                return HEX_RGB_TRUNC_PATTERN;
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(char c) {
+        switch (c) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\u000B':
+            case '\f':
+            case '\r':
+                return true;
             default:
-                throw new AssertionError(this);
+                return false;
+        }
+    }
+
+    private static int skipWhitespace(CharSequence s, int pos, int end) {
+        while (pos < end && isWhitespace(s.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int trimLineTerminator(CharSequence s, int start, int end) {
+        if (end > start) {
+            switch (s.charAt(end - 1)) {
+                case '\n':
+                    if (end - 1 > start && s.charAt(end - 2) == '\r') {
+                        return end - 2;
+                    }
+                    return end - 1;
+                case '\r':
+                case '\u0085':
+                case '\u2028':
+                case '\u2029':
+                    return end - 1;
+                default:
+                    break;
+            }
         }
+        return end;
     }
 }
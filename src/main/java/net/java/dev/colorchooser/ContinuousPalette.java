@@ -108,7 +108,7 @@ final class ContinuousPalette extends Palette {
     int currColor;
     for (int x=0; x < img.getWidth(); x++) {
       for (int y=0; y < img.getHeight(); y++) {
-        currColor = getColorAt (x,y).getRGB();
+        currColor = rgbAt (x,y);
         img.setRGB (x, y, currColor);
       }
     }
@@ -145,6 +145,13 @@ final class ContinuousPalette extends Palette {
    */
     @Override
   public java.awt.Color getColorAt (int x, int y) {
+    return new Color(rgbAt(x, y));
+  }
+
+  /** Computes the color at a given point as a packed RGB int, as described
+   * for getColorAt(), without allocating a Color.
+   */
+  private int rgbAt (int x, int y) {
     float hue;
     float brightness;
     float workingSaturation;
@@ -153,7 +160,7 @@ final class ContinuousPalette extends Palette {
       hue = ((float) y) / img.getHeight();              //Hue value from 0-1 based on y position            
       brightness = ((float) x) / img.getWidth ();       //base brightness value 0-1 based on x location
     } else {
-      if (inGrayStrip) return grayValueFromX (x);
+      if (inGrayStrip) return Color.HSBtoRGB (0, 0, ((float) x) / img.getWidth());
       hue = 1 - (((float) x) / img.getWidth());   //subtract from 1 so lightest color are at top   
       brightness = 1 - ((float) y) / img.getHeight();
     }
@@ -164,8 +171,7 @@ final class ContinuousPalette extends Palette {
     } else {
       workingSaturation = saturation;
     }
-    java.awt.Color newColor = java.awt.Color.getHSBColor (hue, workingSaturation, brightness);
-    return newColor;
+    return Color.HSBtoRGB (hue, workingSaturation, brightness);
   }  
   
   public java.awt.Color colorFromPoint (final Point p) {
@@ -173,18 +179,6 @@ final class ContinuousPalette extends Palette {
   }
   
   
-  /** Called by InitImage() to draw the grayscale strip at the bottom of
-   *horizontal-hue spectrum images.  Returns a grayscale value based on
-   *the width of the image, when called with a horizontal coordinate.
-   * @param x The x coordinate for which a grayscale value is desired
-   * @return The grayscale value (expressed as an RGB integer value)
-   */
-  protected java.awt.Color grayValueFromX(int x) {
-    java.awt.Color newColor = java.awt.Color.getHSBColor (0, 0, ((float) x) /
-            img.getWidth());
-    return newColor;
-  }
-  
   /** Getter for property saturation.  Saturation defines the base saturation for
    *all colors in the image.  Setting it to less that 1 causes the colors to be
    *more desaturated in the resulting bufferedImage.
@@ -258,15 +252,27 @@ final class ContinuousPalette extends Palette {
   
     @Override
   public String getNameAt(int x, int y) {
-      Color c = getColorAt(x,y);
-      StringBuilder sb = new StringBuilder();
-      sb.append(ColorParser.toMinimalString(c)).append("    ");
-      sb.append(c.getRed());
-      sb.append(','); //NOI18N
-      sb.append(c.getGreen());
-      sb.append(','); //NOI18N
-      sb.append(c.getBlue());
-      return sb.toString();
+      int rgb = rgbAt(x,y);
+      StringBuilder sb = new StringBuilder(48);
+      NearestColorName nearest = NearestColorName.getDefault();
+      long match = nearest.match(rgb);
+      int node = NearestColorName.node(match);
+      if (node >= 0) {
+          boolean exact = nearest.rgbAt(node) == (rgb | 0xFF000000);
+          if (!exact) {
+              sb.append("\u2248 "); //NOI18N
+          }
+          sb.append(nearest.nameAt(node));
+          if (!exact) {
+              // one decimal, without the cost of a Formatter per mouse move
+              long tenths = Math.round(NearestColorName.deltaE(match) * 10);
+              sb.append(" (\u0394E ").append(tenths / 10).append('.') //NOI18N
+                      .append(tenths % 10).append(')');
+          }
+          sb.append("    ");
+      }
+      ColorParser.appendMinimalTo(sb, rgb).append("    ");
+      return ColorParser.COMMA_DELIMITED_RGB.appendTo(sb, rgb).toString();
   }
   
   
@@ -109,6 +109,23 @@ final class DefaultColorChooserUI extends ColorChooserUI {
         im.put(paste2, "paste");
         am.put("paste", new CcPasteAction(c));
 
+        KeyStroke undo = isMac()
+                ? KeyStroke.getKeyStroke(KeyEvent.VK_Z, KeyEvent.META_DOWN_MASK)
+                : KeyStroke.getKeyStroke(KeyEvent.VK_Z, KeyEvent.CTRL_DOWN_MASK);
+        KeyStroke redo1 = isMac()
+                ? KeyStroke.getKeyStroke(KeyEvent.VK_Z, KeyEvent.META_DOWN_MASK | KeyEvent.SHIFT_DOWN_MASK)
+                : KeyStroke.getKeyStroke(KeyEvent.VK_Z, KeyEvent.CTRL_DOWN_MASK | KeyEvent.SHIFT_DOWN_MASK);
+        KeyStroke redo2 = isMac()
+                ? KeyStroke.getKeyStroke(KeyEvent.VK_Y, KeyEvent.META_DOWN_MASK)
+                : KeyStroke.getKeyStroke(KeyEvent.VK_Y, KeyEvent.CTRL_DOWN_MASK);
+
+        im.put(undo, "undo");
+        am.put("undo", new CcUndoAction(c, false));
+
+        im.put(redo1, "redo");
+        im.put(redo2, "redo");
+        am.put("redo", new CcUndoAction(c, true));
+
         c.addPropertyChangeListener("font", FONT_CHANGE);
     }
 
@@ -167,6 +184,31 @@ final class DefaultColorChooserUI extends ColorChooserUI {
         }
     }
 
+    private static final class CcUndoAction extends AbstractAction {
+
+        private static final long serialVersionUID = 1L;
+        private final ColorChooser chooser;
+        private final boolean redo;
+
+        CcUndoAction(ColorChooser chooser, boolean redo) {
+            putValue(NAME, redo ? "redo" : "undo");
+            this.chooser = chooser;
+            this.redo = redo;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return redo ? chooser.canRedo() : chooser.canUndo();
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            if (!(redo ? chooser.redo() : chooser.undo())) {
+                Toolkit.getDefaultToolkit().beep();
+            }
+        }
+    }
+
     private static final class CcPasteAction extends AbstractAction {
 
         private final ColorChooser chooser;
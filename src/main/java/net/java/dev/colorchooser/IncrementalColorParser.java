@@ -0,0 +1,239 @@
+/*
+ * Copyright 2010-2022 Tim Boudreau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.java.dev.colorchooser;
+
+import java.awt.Color;
+
+/**
+ * A hex color parser which is fed one character at a time, as a user types,
+ * and can tell after each character whether the text so far is a color, could
+ * become one, or never can. Accepts the hex formats ColorParser does - an
+ * optional <code>#</code> followed by 3 (shorthand), 6 or 8 (with alpha) hex
+ * digits. Whitespace before and after the color is ignored, as it is when a
+ * pasted value is trimmed. Both adding and removing a character at the end
+ * are constant-time.
+ *
+ * @author Tim Boudreau
+ * @since 1.6
+ */
+public final class IncrementalColorParser {
+
+    /**
+     * Whether the text fed so far is a color.
+     */
+    public enum State {
+        /**
+         * The text is a complete color. After 3 or 6 digits more characters
+         * could still make it a different one; after 8, the alpha form, it
+         * is as long as a color can be, and any further character other than
+         * trailing whitespace makes it INVALID.
+         */
+        VALID,
+        /**
+         * The text is not a color, but adding characters could make it one.
+         */
+        VALID_PREFIX,
+        /**
+         * The text is not a color, and no amount of added characters will
+         * make it one.
+         */
+        INVALID
+    }
+
+    private static final int MAX_DIGITS = 8;
+
+    private int length;
+    /** Whitespace before the color */
+    private int leading;
+    /** Whitespace after the color, after which nothing else may follow */
+    private int trailing;
+    private int digits;
+    private int value;
+    private int invalidAt = -1;
+
+    /**
+     * Feed the next character.
+     *
+     * @param c A character
+     * @return The state after it
+     */
+    public State feed(char c) {
+        if (invalidAt < 0) {
+            int nibble = hexDigit(c);
+            if (Character.isWhitespace(c)) {
+                if (length == leading) {
+                    leading++;
+                } else {
+                    trailing++;
+                }
+            } else if (trailing > 0) {
+                invalidAt = length;
+            } else if (nibble >= 0 && digits < MAX_DIGITS) {
+                value = (value << 4) | nibble;
+                digits++;
+            } else if (c != '#' || length != leading) {
+                invalidAt = length;
+            }
+        }
+        length++;
+        return state();
+    }
+
+    /**
+     * Feed a range of characters.
+     *
+     * @param text The characters
+     * @param start The start offset, inclusive
+     * @param end The end offset, exclusive
+     * @return The state after them
+     */
+    public State feed(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            feed(text.charAt(i));
+        }
+        return state();
+    }
+
+    /**
+     * Remove the last character fed, as if it had never been.
+     *
+     * @return The state without it
+     * @throws IllegalStateException if nothing has been fed
+     */
+    public State deleteLast() {
+        if (length == 0) {
+            throw new IllegalStateException("Nothing to delete");
+        }
+        length--;
+        if (invalidAt >= 0) {
+            if (invalidAt == length) {
+                invalidAt = -1;
+            }
+        } else if (trailing > 0) {
+            trailing--;
+        } else if (length < leading) {
+            leading = length;
+        } else if (digits > 0) {
+            value >>>= 4;
+            digits--;
+        }
+        return state();
+    }
+
+    /**
+     * Discard all characters fed so far.
+     */
+    public void reset() {
+        length = 0;
+        leading = 0;
+        trailing = 0;
+        digits = 0;
+        value = 0;
+        invalidAt = -1;
+    }
+
+    /**
+     * Get the number of characters fed so far.
+     *
+     * @return The length
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Get the state of the text fed so far.
+     *
+     * @return The state
+     */
+    public State state() {
+        if (invalidAt >= 0) {
+            return State.INVALID;
+        }
+        switch (digits) {
+            case 3:
+            case 6:
+            case 8:
+                return State.VALID;
+            default:
+                //Nothing can follow trailing whitespace
+                return trailing > 0 ? State.INVALID : State.VALID_PREFIX;
+        }
+    }
+
+    /**
+     * Get the format of the color, if the state is VALID.
+     *
+     * @return The format, or null
+     */
+    public ColorParser format() {
+        if (state() != State.VALID) {
+            return null;
+        }
+        switch (digits) {
+            case 3:
+                return ColorParser.HEX_RGB_TRUNC;
+            case 6:
+                return ColorParser.HEX_RGB;
+            default:
+                return ColorParser.HEX_RGBA;
+        }
+    }
+
+    /**
+     * Get the color as packed ARGB, decoded as ColorParser would.
+     *
+     * @return The color
+     * @throws IllegalStateException if the state is not VALID
+     */
+    public int argb() {
+        if (state() != State.VALID) {
+            throw new IllegalStateException("Not a color: " + state());
+        }
+        switch (digits) {
+            case 3:
+                return 0xFF000000
+                        | ((value & 0xF00) << 12)
+                        | ((value & 0x0F0) << 8)
+                        | ((value & 0x00F) << 4);
+            case 6:
+                return 0xFF000000 | value;
+            default:
+                return (value << 24) | (value >>> 8);
+        }
+    }
+
+    /**
+     * Get the color, if the state is VALID.
+     *
+     * @return A color or null
+     */
+    public Color color() {
+        return state() == State.VALID ? new Color(argb(), true) : null;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
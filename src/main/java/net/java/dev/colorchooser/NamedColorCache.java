@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010-2022 Tim Boudreau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.java.dev.colorchooser;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size cache of named colors keyed by their ARGB value, used to find a
+ * name for a color the user picked from a palette.
+ * <p>
+ * It is an open-addressing table of colors whose keys are their own
+ * <code>getRGB()</code>, so nothing is boxed. A color lives within PROBE
+ * slots of its hash; slots are never emptied once filled, so readers probe
+ * without locking and stop at the first empty slot. When all PROBE slots are
+ * taken, registration overwrites one of them in turn, which bounds the size
+ * at the cost of occasionally forgetting a name. Writers serialize on the
+ * cache's monitor.
+ *
+ * @author Tim Boudreau
+ */
+final class NamedColorCache {
+
+    static final int DEFAULT_SIZE = 1024;
+    private static final int PROBE = 8;
+    private final AtomicReferenceArray<NamedColor> table;
+    private final int mask;
+    private int evictions;
+
+    /**
+     * Create a cache.
+     *
+     * @param size The number of slots, rounded up to a power of two of at
+     * least PROBE
+     */
+    NamedColorCache(int size) {
+        int slots = Integer.highestOneBit(Math.max(PROBE, size) - 1) << 1;
+        table = new AtomicReferenceArray<>(slots);
+        mask = slots - 1;
+    }
+
+    private static int hash(int argb) {
+        int h = argb * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Find a named color by value, without locking.
+     *
+     * @param argb The ARGB value
+     * @return The color last registered with that value, or null
+     */
+    NamedColor get(int argb) {
+        int home = hash(argb);
+        for (int i = 0; i < PROBE; i++) {
+            NamedColor c = table.get((home + i) & mask);
+            if (c == null) {
+                return null;
+            }
+            if (c.getRGB() == argb) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Register a named color, replacing any with the same value.
+     *
+     * @param color The color
+     */
+    synchronized void put(NamedColor color) {
+        int argb = color.getRGB();
+        int home = hash(argb);
+        for (int i = 0; i < PROBE; i++) {
+            int slot = (home + i) & mask;
+            NamedColor c = table.get(slot);
+            if (c == null || c.getRGB() == argb) {
+                table.set(slot, color);
+                return;
+            }
+        }
+        table.set((home + (evictions++ & (PROBE - 1))) & mask, color);
+    }
+
+    /**
+     * Get the maximum number of colors the cache can hold.
+     */
+    int capacity() {
+        return table.length();
+    }
+}
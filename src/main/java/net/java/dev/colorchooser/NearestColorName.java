@@ -0,0 +1,297 @@
+/*
+ * Copyright 2010-2022 Tim Boudreau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.java.dev.colorchooser;
+
+/**
+ * Finds the named color perceptually closest to any color, for showing a name
+ * while the user drags across a continuous palette.
+ * <p>
+ * The colors of a ColorNameIndex are converted to OKLab, where Euclidean
+ * distance approximates perceived difference, and stored as an implicit
+ * k-d tree - a flat array in which each subrange is split at its median on
+ * the L, a and b axes in turn, found by quickselect on an int array of
+ * indices, so rebuilding after a palette is registered is cheap. A query
+ * descends to the nearest leaf and then
+ * visits only the subtrees a closer point could be in, a few dozen distance
+ * computations for the couple of hundred named colors, allocating nothing.
+ *
+ * @author Tim Boudreau
+ */
+final class NearestColorName {
+
+    private final ColorNameIndex source;
+    /** L, a, b of each node, in tree order */
+    private final float[] lab;
+    private final int[] argb;
+    private final String[] names;
+
+    private NearestColorName(ColorNameIndex source) {
+        this.source = source;
+        int count = source.size();
+        float[] points = new float[count * 3];
+        int[] values = new int[count];
+        String[] entryNames = new String[count];
+        int[] ix = new int[1];
+        source.forEach((value, name) -> {
+            int i = ix[0]++;
+            toOkLab(value, points, i * 3);
+            values[i] = value;
+            entryNames[i] = name;
+        });
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        build(order, 0, count, 0, points, values);
+        lab = new float[count * 3];
+        argb = new int[count];
+        names = new String[count];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(points, order[i] * 3, lab, i * 3, 3);
+            argb[i] = values[order[i]];
+            names[i] = entryNames[order[i]];
+        }
+    }
+
+    /**
+     * Arrange a subrange as a subtree: only the median needs to be in place,
+     * with nothing greater before it and nothing less after it, so each
+     * level is a linear-time selection rather than a sort.
+     */
+    private static void build(int[] order, int lo, int hi, int depth, float[] points, int[] values) {
+        if (hi - lo < 2) {
+            return;
+        }
+        int axis = depth % 3;
+        int mid = (lo + hi) >>> 1;
+        select(order, lo, hi - 1, mid, axis, points, values);
+        build(order, lo, mid, depth + 1, points, values);
+        build(order, mid + 1, hi, depth + 1, points, values);
+    }
+
+    /**
+     * Quickselect - move the k'th smallest of order[lo..hi] on an axis to k.
+     */
+    private static void select(int[] order, int lo, int hi, int k, int axis, float[] points, int[] values) {
+        while (lo < hi) {
+            int pivot = order[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (less(order[i], pivot, axis, points, values)) {
+                    i++;
+                }
+                while (less(pivot, order[j], axis, points, values)) {
+                    j--;
+                }
+                if (i <= j) {
+                    int t = order[i];
+                    order[i++] = order[j];
+                    order[j--] = t;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Compare two points on an axis, breaking ties by color - unique in an
+     * index - so the tree is the same however the index is ordered.
+     */
+    private static boolean less(int a, int b, int axis, float[] points, int[] values) {
+        float pa = points[a * 3 + axis];
+        float pb = points[b * 3 + axis];
+        return pa < pb || (pa == pb && values[a] < values[b]);
+    }
+
+    private static volatile NearestColorName current;
+
+    /**
+     * Get the instance for the current display name index - checking it is
+     * current costs a couple of volatile reads, so this can be called on
+     * every mouse move.
+     */
+    static NearestColorName getDefault() {
+        ColorNameIndex index = ColorNameIndex.display();
+        NearestColorName result = current;
+        if (result == null || result.source != index) {
+            current = result = new NearestColorName(index);
+        }
+        return result;
+    }
+
+    int size() {
+        return argb.length;
+    }
+
+    /**
+     * Find the closest named color.
+     *
+     * @param rgb A color; alpha is ignored
+     * @return The node holding the closest color, for <code>nameAt()</code>
+     * and <code>rgbAt()</code>, or -1 if there are no named colors
+     */
+    int nearest(int rgb) {
+        return node(match(rgb));
+    }
+
+    /**
+     * Find the closest named color and how close it is, without allocating.
+     *
+     * @param rgb A color; alpha is ignored
+     * @return A match for <code>node()</code> and <code>deltaE()</code>, or
+     * -1 if there are no named colors
+     */
+    long match(int rgb) {
+        if (argb.length == 0) {
+            return -1;
+        }
+        double l = lmsL(rgb);
+        double m = lmsM(rgb);
+        double s = lmsS(rgb);
+        return search(labL(l, m, s), labA(l, m, s), labB(l, m, s), 0, argb.length, 0,
+                ((long) Float.floatToIntBits(Float.MAX_VALUE) << 32));
+    }
+
+    /**
+     * Get the node of a match.
+     *
+     * @param match A result of <code>match()</code>
+     * @return The node, or -1
+     */
+    static int node(long match) {
+        return match < 0 ? -1 : (int) match;
+    }
+
+    /**
+     * Get the difference between a color and its match, as the distance
+     * between them in OKLab scaled by 100 - roughly 1 for the smallest
+     * difference people notice.
+     *
+     * @param match A successful result of <code>match()</code>
+     * @return The difference
+     */
+    static double deltaE(long match) {
+        return Math.sqrt(Float.intBitsToFloat((int) (match >>> 32))) * 100;
+    }
+
+    String nameAt(int node) {
+        return names[node];
+    }
+
+    int rgbAt(int node) {
+        return argb[node];
+    }
+
+    float distanceSquared(float l, float a, float b, int node) {
+        float dl = l - lab[node * 3];
+        float da = a - lab[node * 3 + 1];
+        float db = b - lab[node * 3 + 2];
+        return dl * dl + da * da + db * db;
+    }
+
+    /**
+     * Search a subtree, returning the best match so far packed as the
+     * squared distance's float bits in the high half and the node in the
+     * low half - non-negative floats compare the same as their bits.
+     */
+    private long search(float l, float a, float b, int lo, int hi, int depth, long best) {
+        if (lo >= hi) {
+            return best;
+        }
+        int mid = (lo + hi) >>> 1;
+        float d = distanceSquared(l, a, b, mid);
+        if (d < Float.intBitsToFloat((int) (best >>> 32))) {
+            best = ((long) Float.floatToIntBits(d) << 32) | mid;
+        }
+        int axis = depth % 3;
+        float diff = (axis == 0 ? l : axis == 1 ? a : b) - lab[mid * 3 + axis];
+        if (diff < 0) {
+            best = search(l, a, b, lo, mid, depth + 1, best);
+            if (diff * diff < Float.intBitsToFloat((int) (best >>> 32))) {
+                best = search(l, a, b, mid + 1, hi, depth + 1, best);
+            }
+        } else {
+            best = search(l, a, b, mid + 1, hi, depth + 1, best);
+            if (diff * diff < Float.intBitsToFloat((int) (best >>> 32))) {
+                best = search(l, a, b, lo, mid, depth + 1, best);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Convert an sRGB color to OKLab.
+     */
+    static void toOkLab(int rgb, float[] into, int offset) {
+        double l = lmsL(rgb);
+        double m = lmsM(rgb);
+        double s = lmsS(rgb);
+        into[offset] = labL(l, m, s);
+        into[offset + 1] = labA(l, m, s);
+        into[offset + 2] = labB(l, m, s);
+    }
+
+    // The conversion is split per component so a query can be converted
+    // into locals rather than an array
+
+    private static double lmsL(int rgb) {
+        return Math.cbrt(0.4122214708 * linear((rgb >> 16) & 0xFF)
+                + 0.5363325363 * linear((rgb >> 8) & 0xFF) + 0.0514459929 * linear(rgb & 0xFF));
+    }
+
+    private static double lmsM(int rgb) {
+        return Math.cbrt(0.2119034982 * linear((rgb >> 16) & 0xFF)
+                + 0.6806995451 * linear((rgb >> 8) & 0xFF) + 0.1073969566 * linear(rgb & 0xFF));
+    }
+
+    private static double lmsS(int rgb) {
+        return Math.cbrt(0.0883024619 * linear((rgb >> 16) & 0xFF)
+                + 0.2817188376 * linear((rgb >> 8) & 0xFF) + 0.6299787005 * linear(rgb & 0xFF));
+    }
+
+    private static float labL(double l, double m, double s) {
+        return (float) (0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s);
+    }
+
+    private static float labA(double l, double m, double s) {
+        return (float) (1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s);
+    }
+
+    private static float labB(double l, double m, double s) {
+        return (float) (0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s);
+    }
+
+    private static final double[] LINEAR = new double[256];
+
+    static {
+        for (int i = 0; i < LINEAR.length; i++) {
+            double c = i / 255D;
+            LINEAR[i] = c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+        }
+    }
+
+    private static double linear(int component) {
+        return LINEAR[component];
+    }
+}
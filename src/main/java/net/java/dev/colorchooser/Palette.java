@@ -94,10 +94,77 @@ public abstract class Palette {
     }
     
     public static final Palette createPredefinedPalette (String name, Color[] colors, String[] names) {
+        return createPredefinedPalette(name, colors, names, PaletteOrder.BRIGHTNESS);
+    }
+    
+    /**
+     * Create a palette of named colors laid out in a particular order.
+     * 
+     * @param name The palette name
+     * @param colors The colors
+     * @param names The name of each color
+     * @param order The order to show them in
+     * @return A palette
+     * @since 1.6
+     */
+    public static final Palette createPredefinedPalette (String name, Color[] colors, String[] names, PaletteOrder order) {
         NamedColor[] cc = new NamedColor[colors.length];
         for (int i=0; i < colors.length; i++) {
             cc[i] = NamedColor.create(colors[i], names[i]);
         }
-        return new PredefinedPalette(name, cc);
+        PredefinedPalette result = new PredefinedPalette(name, cc, order);
+        ColorNameIndex.register(result);
+        return result;
+    }
+    
+    /**
+     * Create a palette of named colors stored compactly - for palettes of
+     * many thousands of colors, each costs 8 bytes plus its share of the
+     * distinct names.  Unlike the other predefined palettes, the colors are
+     * shown in the order passed.
+     * 
+     * @param name The palette name
+     * @param rgb The RGB value of each color; alpha is ignored
+     * @param names The name of each color, or nulls
+     * @return A palette
+     * @throws IllegalArgumentException if the arrays differ in length
+     * @since 1.6
+     */
+    public static final Palette createPredefinedPalette (String name, int[] rgb, String[] names) {
+        return createPredefinedPalette(name, rgb, names, PaletteOrder.ORIGINAL);
+    }
+    
+    /**
+     * Create a palette of named colors stored compactly, laid out in a
+     * particular order.
+     * 
+     * @param name The palette name
+     * @param rgb The RGB value of each color; alpha is ignored
+     * @param names The name of each color, or nulls
+     * @param order The order to show them in
+     * @return A palette
+     * @throws IllegalArgumentException if the arrays differ in length
+     * @since 1.6
+     */
+    public static final Palette createPredefinedPalette (String name, int[] rgb, String[] names, PaletteOrder order) {
+        if (rgb.length != names.length) {
+            throw new IllegalArgumentException(rgb.length + " colors but "
+                    + names.length + " names");
+        }
+        if (order != PaletteOrder.ORIGINAL) {
+            int[] positions = order.order(rgb);
+            int[] sortedRgb = new int[rgb.length];
+            String[] sortedNames = new String[names.length];
+            for (int i = 0; i < positions.length; i++) {
+                sortedRgb[i] = rgb[positions[i]];
+                sortedNames[i] = names[positions[i]];
+            }
+            rgb = sortedRgb;
+            names = sortedNames;
+        }
+        PredefinedPalette result = new PredefinedPalette(name, 
+                new PaletteTable(rgb, names));
+        ColorNameIndex.register(result);
+        return result;
     }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2010-2022 Tim Boudreau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.java.dev.colorchooser;
+
+import java.util.Arrays;
+
+/**
+ * The order the swatches of a predefined palette are laid out in.
+ * <p>
+ * Each ordering reduces a color to a single int key, computed once per color;
+ * a palette is sorted by packing each key with the color's index into a long
+ * and sorting those, so a palette of a hundred thousand colors sorts in a few
+ * milliseconds, and colors with equal keys keep their original order.
+ *
+ * @author Tim Boudreau
+ * @since 1.6
+ */
+public enum PaletteOrder {
+    /**
+     * The order the colors were supplied in.
+     */
+    ORIGINAL {
+        @Override
+        int key(int rgb) {
+            return 0;
+        }
+    },
+    /**
+     * Brightest first, by the average of the red, green and blue values -
+     * the order predefined palettes have always been shown in, and the
+     * default.
+     */
+    BRIGHTNESS {
+        @Override
+        int key(int rgb) {
+            return 255 - (((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF)) / 3;
+        }
+    },
+    /**
+     * Brightest first, by the Rec. 709 relative luminance of the sRGB
+     * values.
+     */
+    LUMINANCE {
+        @Override
+        int key(int rgb) {
+            return 255 * 10000 - luminance(rgb);
+        }
+    },
+    /**
+     * Grays first, brightest first, then the other colors in bands of hue
+     * from red through yellow, green, blue and magenta, brightest first
+     * within each band.
+     */
+    HUE {
+        @Override
+        int key(int rgb) {
+            int r = (rgb >> 16) & 0xFF;
+            int g = (rgb >> 8) & 0xFF;
+            int b = rgb & 0xFF;
+            int max = Math.max(r, Math.max(g, b));
+            int chroma = max - Math.min(r, Math.min(g, b));
+            int band;
+            int hue;
+            if (chroma < GRAY_CHROMA) {
+                band = 0;
+                hue = 0;
+            } else {
+                // hue in 1/6ths of the circle, scaled to 0 - 1535
+                if (max == r) {
+                    hue = g >= b ? 256 * (g - b) / chroma : 1536 - 256 * (b - g) / chroma;
+                } else if (max == g) {
+                    hue = 512 + 256 * (b - r) / chroma;
+                } else {
+                    hue = 1024 + 256 * (r - g) / chroma;
+                }
+                hue = Math.min(hue, 1535);
+                band = 1 + hue * HUE_BANDS / 1536;
+            }
+            int lightness = luminance(rgb) / 10000;
+            return (band << 20) | ((255 - lightness) << 12) | hue;
+        }
+    },
+    /**
+     * Along a Hilbert curve through the RGB cube, so that colors adjacent in
+     * the palette are always close to each other, with only the occasional
+     * jump at the end of a row.
+     */
+    HILBERT {
+        @Override
+        int key(int rgb) {
+            return hilbertIndex(rgb);
+        }
+    };
+
+    /** Colors whose channels differ by less than this count as gray */
+    private static final int GRAY_CHROMA = 24;
+    private static final int HUE_BANDS = 12;
+
+    /**
+     * Compute the sort key of a color; colors are sorted in ascending
+     * order of key.
+     *
+     * @param rgb A color; alpha is ignored
+     * @return A non-negative key
+     */
+    abstract int key(int rgb);
+
+    /**
+     * Sort colors in place.
+     *
+     * @param colors Some colors
+     * @return The same array
+     */
+    NamedColor[] sort(NamedColor[] colors) {
+        if (this == ORIGINAL) {
+            return colors;
+        }
+        long[] keys = new long[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            keys[i] = ((long) key(colors[i].getRGB()) << 32) | i;
+        }
+        Arrays.sort(keys);
+        NamedColor[] sorted = new NamedColor[colors.length];
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = colors[(int) keys[i]];
+        }
+        System.arraycopy(sorted, 0, colors, 0, sorted.length);
+        return colors;
+    }
+
+    /**
+     * Get the order colors should be laid out in.
+     *
+     * @param rgb Some colors
+     * @return The index into <code>rgb</code> of each position
+     */
+    int[] order(int[] rgb) {
+        int[] result = new int[rgb.length];
+        if (this == ORIGINAL) {
+            for (int i = 0; i < result.length; i++) {
+                result[i] = i;
+            }
+            return result;
+        }
+        long[] keys = new long[rgb.length];
+        for (int i = 0; i < rgb.length; i++) {
+            keys[i] = ((long) key(rgb[i]) << 32) | i;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = (int) keys[i];
+        }
+        return result;
+    }
+
+    /**
+     * Get the Rec. 709 relative luminance of the sRGB values, scaled so
+     * white is 2550000 - not linearized, which would cost more than it
+     * changes the order.
+     */
+    static int luminance(int rgb) {
+        return 2126 * ((rgb >> 16) & 0xFF) + 7152 * ((rgb >> 8) & 0xFF)
+                + 722 * (rgb & 0xFF);
+    }
+
+    /**
+     * Get the position of a color along a Hilbert curve through the 256
+     * cubed RGB values, using Skilling's transform ("Programming the
+     * Hilbert curve", 2004) - 24 bits, three per level of the curve.
+     */
+    static int hilbertIndex(int rgb) {
+        int x0 = (rgb >> 16) & 0xFF;
+        int x1 = (rgb >> 8) & 0xFF;
+        int x2 = rgb & 0xFF;
+        for (int q = 0x80; q > 1; q >>= 1) {
+            int p = q - 1;
+            if ((x0 & q) != 0) {
+                x0 ^= p;
+            }
+            if ((x1 & q) != 0) {
+                x0 ^= p;
+            } else {
+                int t = (x0 ^ x1) & p;
+                x0 ^= t;
+                x1 ^= t;
+            }
+            if ((x2 & q) != 0) {
+                x0 ^= p;
+            } else {
+                int t = (x0 ^ x2) & p;
+                x0 ^= t;
+                x2 ^= t;
+            }
+        }
+        x1 ^= x0;
+        x2 ^= x1;
+        int t = 0;
+        for (int q = 0x80; q > 1; q >>= 1) {
+            if ((x2 & q) != 0) {
+                t ^= q - 1;
+            }
+        }
+        x0 ^= t;
+        x1 ^= t;
+        x2 ^= t;
+        int result = 0;
+        for (int bit = 7; bit >= 0; bit--) {
+            result = (result << 3) | (((x0 >> bit) & 1) << 2)
+                    | (((x1 >> bit) & 1) << 1) | ((x2 >> bit) & 1);
+        }
+        return result;
+    }
+}
@@ -29,6 +29,7 @@ import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseMotionListener;
+import java.awt.event.MouseWheelEvent;
 import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
@@ -41,6 +42,7 @@ import javax.swing.Popup;
 import javax.swing.PopupFactory;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
+import javax.swing.event.ChangeListener;
 
 /** Encapsulates the logic of a popup palette which can callback a
  * color chooser to set its transient color or its final color if
@@ -55,6 +57,8 @@ class PalettePopup extends MouseAdapter implements MouseMotionListener, Property
     private static Reference<PalettePopup> defaultInstance=null;
     private Reference<ColorChooser> lastOwner;
     private Point lastCoords;
+    /** The last point dragged over, in palette coordinates */
+    private Point lastDrag;
 
     /** Creates a new instance of PalettePopup */
     private PalettePopup() {
@@ -88,6 +92,9 @@ class PalettePopup extends MouseAdapter implements MouseMotionListener, Property
     private PalettePanel getPalettePanel() {
         if (panel == null) {
             panel = new PalettePanel(this::lastOwner);
+            //the wheel scrolls virtual palettes, whether the mouse is over
+            //the popup or still over the chooser
+            panel.addMouseWheelListener(this);
         }
         return panel;
     }
@@ -165,6 +172,7 @@ class PalettePopup extends MouseAdapter implements MouseMotionListener, Property
         if (last != null) {
             last .removeMouseMotionListener(this);
             last .removeMouseListener(this);
+            last .removeMouseWheelListener(this);
         }
         lastOwner = null;
     }
@@ -173,6 +181,7 @@ class PalettePopup extends MouseAdapter implements MouseMotionListener, Property
         lastOwner = new WeakReference<>(owner);
         owner.addMouseListener(this);
         owner.addMouseMotionListener(this);
+        owner.addMouseWheelListener(this);
     }
 
     public void hidePopup(ColorChooser owner) {
@@ -213,10 +222,37 @@ class PalettePopup extends MouseAdapter implements MouseMotionListener, Property
             p.x -= d.width;
             p.y -= d.height;
         }
+        lastDrag = p;
+        if (pal instanceof PredefinedPalette && p.x >= 0 && p.x < pal.getSize().width
+                && (p.y < 0 || p.y >= pal.getSize().height)) {
+            //dragging off the top or bottom of a virtual palette pages it
+            if (((PredefinedPalette) pal).scrollBy(p.y < 0 ? -1 : 1)) {
+                panel.repaint();
+            }
+        }
+        updateAt(owner, p);
+    }
+
+    @Override
+    public void mouseWheelMoved(MouseWheelEvent e) {
+        ColorChooser owner = lastOwner();
+        if (owner == null || !isPopupVisible() || !(pal instanceof PredefinedPalette)) {
+            return;
+        }
+        if (((PredefinedPalette) pal).scrollBy(e.getWheelRotation() * 3)) {
+            panel.repaint();
+            if (lastDrag != null) {
+                updateAt(owner, lastDrag);
+            }
+        }
+        e.consume();
+    }
+
+    private void updateAt(ColorChooser owner, Point p) {
         if (p.x >= 0 && p.y >= 0 && p.x <= pal.getSize().width && p.y < pal.getSize().height) {
             Color color = pal.getColorAt(p.x, p.y);
             Color oldColor = owner.getColor();
-            if (!(pal instanceof AlphaPalette) && oldColor != null && oldColor.getAlpha() < 255) {
+            if (color != null && !(pal instanceof AlphaPalette) && oldColor != null && oldColor.getAlpha() < 255) {
                 color = new Color(color.getRed(), color.getGreen(), color.getBlue(),
                     oldColor.getAlpha());
             }
@@ -251,16 +287,51 @@ class PalettePopup extends MouseAdapter implements MouseMotionListener, Property
         private final Supplier<ColorChooser> lastOwnerSupplier;
         private Palette pal=null;
         private String title=null;
+        /** The recent colors version last painted, if showing recent colors */
+        private long paintedVersion = -1;
+        private final ChangeListener recentColorsListener = e -> {
+            if (pal instanceof RecentColors 
+                    && ((RecentColors) pal).version() != paintedVersion) {
+                repaint();
+            }
+        };
 
         private PalettePanel(Supplier<ColorChooser> lastOwnerSupplier) {
             this.lastOwnerSupplier = lastOwnerSupplier;
         }
 
+        @Override
+        public void addNotify() {
+            super.addNotify();
+            listen(pal, true);
+        }
+
+        @Override
+        public void removeNotify() {
+            listen(pal, false);
+            super.removeNotify();
+        }
+
+        private void listen(Palette p, boolean listen) {
+            //recent colors may change while shown, e.g. from another window
+            if (p instanceof RecentColors) {
+                if (listen) {
+                    ((RecentColors) p).addChangeListener(recentColorsListener);
+                } else {
+                    ((RecentColors) p).removeChangeListener(recentColorsListener);
+                }
+            }
+        }
+
         public void setPalette(Palette pal) {
             Dimension oldSize = null;
             if (pal != null && isShowing()) {
                 oldSize = pal.getSize();
             }
+            if (isDisplayable() && pal != this.pal) {
+                listen(this.pal, false);
+                listen(pal, true);
+            }
             this.pal = pal;
             if (oldSize != null && pal != null && !pal.getSize().equals(oldSize)) {
                 firePropertyChange("preferredSize", oldSize, pal.getSize()); //NOI18N
@@ -299,6 +370,9 @@ class PalettePopup extends MouseAdapter implements MouseMotionListener, Property
                 g.drawString(s, xpos, ht-3);
                 g.translate (0, y / 2);
             }
+            if (pal instanceof RecentColors) {
+                paintedVersion = ((RecentColors) pal).version();
+            }
             pal.paintTo(g);
 
             int top = pal.getDisplayName()==null ? y : y/2;
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2010-2022 Tim Boudreau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.java.dev.colorchooser;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact, immutable storage for the colors of a large palette: the opaque
+ * RGB value of each entry in an int array, and its name as an index into a
+ * table of distinct names stored end to end in one char array. An entry
+ * costs 8 bytes plus its share of the names, against well over 100 for a
+ * NamedColor and its String; NamedColor and String instances are created
+ * only when asked for.
+ *
+ * @author Tim Boudreau
+ */
+final class PaletteTable {
+
+    private final int[] rgb;
+    /** Index of each entry's name, or -1 for none */
+    private final int[] nameIds;
+    private final char[] chars;
+    /** Start of each distinct name in chars, plus the end of the last */
+    private final int[] nameStarts;
+
+    /**
+     * Create a table.
+     *
+     * @param rgb Colors; alpha is ignored, as NamedColors are opaque
+     * @param names Names, or nulls, in the same order
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    PaletteTable(int[] rgb, String[] names) {
+        if (rgb.length != names.length) {
+            throw new IllegalArgumentException(rgb.length + " colors but "
+                    + names.length + " names");
+        }
+        this.rgb = new int[rgb.length];
+        nameIds = new int[rgb.length];
+        Map<String, Integer> ids = new HashMap<>();
+        int length = 0;
+        for (int i = 0; i < rgb.length; i++) {
+            this.rgb[i] = rgb[i] | 0xFF000000;
+            String name = names[i];
+            if (name == null) {
+                nameIds[i] = -1;
+                continue;
+            }
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = ids.size();
+                ids.put(name, id);
+                length += name.length();
+            }
+            nameIds[i] = id;
+        }
+        chars = new char[length];
+        nameStarts = new int[ids.size() + 1];
+        String[] distinct = new String[ids.size()];
+        for (Map.Entry<String, Integer> e : ids.entrySet()) {
+            distinct[e.getValue()] = e.getKey();
+        }
+        int pos = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            nameStarts[i] = pos;
+            distinct[i].getChars(0, distinct[i].length(), chars, pos);
+            pos += distinct[i].length();
+        }
+        nameStarts[distinct.length] = pos;
+    }
+
+    int size() {
+        return rgb.length;
+    }
+
+    int rgbAt(int index) {
+        return rgb[index];
+    }
+
+    /**
+     * Get the name of an entry.
+     *
+     * @param index The entry
+     * @return A new string, or null if the entry has no name
+     */
+    String nameAt(int index) {
+        int id = nameIds[index];
+        return id < 0 ? null : name(id);
+    }
+
+    /**
+     * Get the id of an entry's name - entries with the same name have the
+     * same id.
+     *
+     * @param index The entry
+     * @return The id, or -1 if the entry has no name
+     */
+    int nameIdAt(int index) {
+        return nameIds[index];
+    }
+
+    /**
+     * Get the number of distinct names.
+     */
+    int nameCount() {
+        return nameStarts.length - 1;
+    }
+
+    /**
+     * Get a name by id.
+     *
+     * @param id The id
+     * @return A new string
+     */
+    String name(int id) {
+        return new String(chars, nameStarts[id], nameStarts[id + 1] - nameStarts[id]);
+    }
+
+    /**
+     * Create a NamedColor for an entry.
+     *
+     * @param index The entry
+     * @return A new color
+     */
+    NamedColor colorAt(int index) {
+        return NamedColor.create(new Color(rgb[index]), nameAt(index));
+    }
+}
@@ -18,86 +18,407 @@ package net.java.dev.colorchooser;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.Shape;
 import java.awt.SystemColor;
-import java.util.Arrays;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.swing.LookAndFeel;
 import javax.swing.UIManager;
 
-/** A palette of swatches with predefined colors 
+/** A palette of swatches with predefined colors.
+ * The grid is rendered once into an image at the device scale it is painted
+ * at, so painting is a single blit; it is re-rendered if the scale or the
+ * look and feel changes, or if a color in the array changes - which is
+ * checked by comparing RGB values, without allocating.  The bevel colors of
+ * each swatch are computed when its color is first seen, not on every paint.
+ * <p>
+ * Palettes of VIRTUAL_THRESHOLD colors or more are virtual: they show a
+ * fixed viewport of VIRTUAL_COLUMNS by VIRTUAL_ROWS small swatches, with a
+ * scroll indicator, which <code>scrollBy()</code> moves through the rows.
+ * Hit-testing is arithmetic on the scroll position, and painting blits only
+ * the visible bands of rows, each rendered once into a small LRU cache of
+ * tiles, so the cost of showing the palette does not grow with its size.
+ * <p>
+ * Colors are either an array of NamedColors, sorted in a PaletteOrder when
+ * the palette is created, or for large palettes a PaletteTable, already in
+ * order, from which NamedColors are created only when the palette is asked
+ * for one.
  *
  * @author  Tim Boudreau
  */
 class PredefinedPalette extends Palette {
-    NamedColor[] colors;
-    private int swatchSize = 16;
-    private final int gap = 1;
-    private static final Rectangle scratch = new Rectangle();
+    /** The colors, or null if they are in table */
+    final NamedColor[] colors;
+    private final PaletteTable table;
+    private final int swatchSize;
+    private static final int gap = 1;
+    /** Used while rendering, under the instance's monitor */
+    private final Rectangle scratch = new Rectangle();
     private final String name;
+    /** The RGB values the image was rendered with */
+    private final int[] paintedRgb;
+    private final Color[] highlights;
+    private final Color[] shadows;
+    private BufferedImage image;
+    private double imageScaleX;
+    private double imageScaleY;
+    /** The look and feel the image or tiles were rendered under */
+    private LookAndFeel imageLookAndFeel;
+    /** Display names by slot, for the locale they were resolved in */
+    private DisplayNames displayNames;
+    /** Names by color, if registered with ColorNameIndex */
+    private volatile ColorNameIndex nameIndex;
+    static final int VIRTUAL_THRESHOLD = 1024;
+    static final int VIRTUAL_COLUMNS = 32;
+    static final int VIRTUAL_ROWS = 24;
+    private static final int VIRTUAL_SWATCH_SIZE = 12;
+    private static final int SCROLLBAR_WIDTH = 6;
+    private static final int TILE_ROWS = 8;
+    private static final int MAX_TILES = 8;
+    private final boolean virtual;
+    /** The first row shown, if virtual */
+    private int firstRow;
+    /** Bands of TILE_ROWS rows by number, at the scale of the last paint */
+    private final Map<Integer, Tile> tiles = new LinkedHashMap<Integer, Tile>(16, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Tile> eldest) {
+            return size() > MAX_TILES;
+        }
+    };
     /** Creates a new instance of PredefinedPalette */
     PredefinedPalette(String name, NamedColor[] colors) {
+        this(name, colors, PaletteOrder.BRIGHTNESS);
+    }
+    
+    /** Creates a palette, sorting the passed array in place - so never pass
+     * one of the shared color tables, only a copy of it */
+    PredefinedPalette(String name, NamedColor[] colors, PaletteOrder order) {
+        this(name, order.sort(colors), null, colors.length);
+    }
+    
+    /** Creates a palette of colors stored compactly, in their table order */
+    PredefinedPalette(String name, PaletteTable table) {
+        this(name, null, table, table.size());
+    }
+    
+    private PredefinedPalette(String name, NamedColor[] colors, 
+            PaletteTable table, int count) {
         this.colors = colors;
+        this.table = table;
         this.name = name;
-        Arrays.sort(colors);
-        if (colors.length < 14) {
-            swatchSize = 24;
-        } else if (colors.length < 40) {
-            swatchSize = 16;
+        virtual = count >= VIRTUAL_THRESHOLD;
+        swatchSize = virtual ? VIRTUAL_SWATCH_SIZE : swatchSize(count);
+        //virtual palettes compute bevels per tile instead
+        int cached = virtual ? 0 : count;
+        paintedRgb = new int[cached];
+        highlights = new Color[cached];
+        shadows = new Color[cached];
+    }
+    
+    /** Get an index of the names of this palette's colors, building it on
+     * first use */
+    ColorNameIndex nameIndex() {
+        ColorNameIndex result = nameIndex;
+        if (result == null) {
+            ColorNameIndex.Builder builder = new ColorNameIndex.Builder();
+            if (colors != null) {
+                builder.add(colors, true);
+            } else {
+                builder.add(table);
+            }
+            nameIndex = result = builder.build();
         }
+        return result;
+    }
+    
+    /** The number of colors */
+    int count() {
+        return colors != null ? colors.length : table.size();
+    }
+    
+    private int rgbAt(int index) {
+        return colors != null ? colors[index].getRGB() : table.rgbAt(index);
+    }
+    
+    /** The color at an index, for painting; created for table palettes */
+    private Color swatchColor(int index) {
+        return colors != null ? colors[index] : new Color(table.rgbAt(index));
+    }
+    
+    /** The size of swatches in a palette of <code>count</code> colors */
+    static int swatchSize(int count) {
+        return count < 14 ? 24 : 16;
     }
     
     @Override
     public java.awt.Color getColorAt(int x, int y) {
         Color result = null;
         int idx = indexForPoint (x,y);
-        if (idx != -1 && idx < colors.length) {
-            result = colors[idx];
+        if (idx != -1 && idx < count()) {
+            result = colors != null ? colors[idx] : table.colorAt(idx);
         }
         return result;
     }
     
     @Override
     public void paintTo(java.awt.Graphics g) {
-        g.setColor(Color.BLACK);
+        Graphics2D gg = (Graphics2D) g;
+        AffineTransform xform = gg.getTransform();
+        if (virtual) {
+            paintViewport(gg, xform.getScaleX(), xform.getScaleY());
+            return;
+        }
+        BufferedImage img = image(xform.getScaleX(), xform.getScaleY());
         Dimension size = getSize();
-        g.fillRect(0,0,size.width,size.height);
-        for (int i=0; i < colors.length; i++) {
-            Color c = colors[i];
-            rectForIndex(i, scratch);
-            g.setColor(c);
-            g.fillRect(scratch.x,scratch.y,scratch.width,scratch.height);
-            if (Color.BLACK.equals(c)) {
-                g.setColor(Color.GRAY);
-            } else {
-                g.setColor(c.brighter());
+        if (img.getWidth() == size.width && img.getHeight() == size.height) {
+            gg.drawImage(img, 0, 0, null);
+        } else {
+            gg.drawImage(img, 0, 0, size.width, size.height, null);
+        }
+    }
+    
+    private synchronized BufferedImage image(double scaleX, double scaleY) {
+        LookAndFeel laf = UIManager.getLookAndFeel();
+        boolean changed = image == null || imageScaleX != scaleX 
+            || imageScaleY != scaleY || imageLookAndFeel != laf;
+        int count = count();
+        for (int i = 0; i < count; i++) {
+            int rgb = rgbAt(i);
+            if (highlights[i] == null || paintedRgb[i] != rgb) {
+                paintedRgb[i] = rgb;
+                Color c = swatchColor(i);
+                highlights[i] = highlight(c);
+                shadows[i] = shadow(c);
+                changed = true;
             }
-            g.drawLine(scratch.x, scratch.y, scratch.x + scratch.width-1, scratch.y);
-            g.drawLine(scratch.x, scratch.y, scratch.x, scratch.y + scratch.height-1);
-            if (Color.BLACK.equals(c)) {
-                g.setColor(Color.GRAY.darker());
-            } else {
-                g.setColor(c.darker());
+        }
+        if (!changed) {
+            return image;
+        }
+        Dimension size = getSize();
+        int w = Math.max(1, (int) Math.ceil(size.width * scaleX));
+        int h = Math.max(1, (int) Math.ceil(size.height * scaleY));
+        if (image == null || image.getWidth() != w || image.getHeight() != h) {
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        }
+        imageScaleX = scaleX;
+        imageScaleY = scaleY;
+        imageLookAndFeel = laf;
+        Graphics2D g = image.createGraphics();
+        try {
+            g.scale(scaleX, scaleY);
+            g.setColor(Color.BLACK);
+            g.fillRect(0,0,size.width,size.height);
+            for (int i=0; i < count; i++) {
+                rectForIndex(i, scratch);
+                paintSwatch(g, swatchColor(i), highlights[i], shadows[i], scratch);
             }
-            g.drawLine(scratch.x+scratch.width-1, scratch.y + scratch.height-1, scratch.width+scratch.x-1, scratch.y+1);
-            g.drawLine(scratch.x+scratch.width-1, scratch.y + scratch.height-1, scratch.x, scratch.y + scratch.height-1);
+        } finally {
+            g.dispose();
         }
+        return image;
+    }
+    
+    boolean isVirtual() {
+        return virtual;
+    }
+    
+    private int totalRows() {
+        return (count() + VIRTUAL_COLUMNS - 1) / VIRTUAL_COLUMNS;
+    }
+    
+    /** Scroll a virtual palette by a number of rows, returning true if the
+     * visible rows changed */
+    boolean scrollBy(int rows) {
+        if (!virtual) {
+            return false;
+        }
+        int old = firstRow;
+        firstRow = Math.max(0, Math.min(totalRows() - VIRTUAL_ROWS, firstRow + rows));
+        return firstRow != old;
+    }
+    
+    private static final class Tile {
+        final BufferedImage image;
+        final int[] rgb;
+        
+        Tile(BufferedImage image, int[] rgb) {
+            this.image = image;
+            this.rgb = rgb;
+        }
+    }
+    
+    private synchronized void paintViewport(Graphics2D g, double scaleX, double scaleY) {
+        int pitch = swatchSize + gap;
+        int gridWidth = VIRTUAL_COLUMNS * pitch + gap;
+        int height = VIRTUAL_ROWS * pitch + gap;
+        LookAndFeel laf = UIManager.getLookAndFeel();
+        if (imageScaleX != scaleX || imageScaleY != scaleY 
+                || imageLookAndFeel != laf) {
+            tiles.clear();
+            imageScaleX = scaleX;
+            imageScaleY = scaleY;
+            imageLookAndFeel = laf;
+        }
+        Shape oldClip = g.getClip();
+        g.clipRect(0, 0, gridWidth, height);
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, gridWidth, height);
+        int lastRow = Math.min(totalRows(), firstRow + VIRTUAL_ROWS);
+        for (int t = firstRow / TILE_ROWS; t * TILE_ROWS < lastRow; t++) {
+            BufferedImage img = tile(t, gridWidth, scaleX, scaleY);
+            int y = (t * TILE_ROWS - firstRow) * pitch;
+            g.drawImage(img, 0, y, gridWidth, TILE_ROWS * pitch, null);
+        }
+        g.setClip(oldClip);
+        //scroll indicator
+        g.setColor(UIManager.getColor("controlShadow")); //NOI18N
+        g.fillRect(gridWidth, 0, SCROLLBAR_WIDTH, height);
+        int rows = Math.max(1, totalRows());
+        int thumbHeight = Math.max(SCROLLBAR_WIDTH, height * VIRTUAL_ROWS / rows);
+        int thumbY = (int) ((long) (height - thumbHeight) * firstRow 
+            / Math.max(1, rows - VIRTUAL_ROWS));
+        g.setColor(UIManager.getColor("controlHighlight")); //NOI18N
+        g.fillRect(gridWidth + 1, thumbY + 1, SCROLLBAR_WIDTH - 2, thumbHeight - 2);
+    }
+    
+    /** Get a band of rows, rendering it if not cached or if any of its
+     * colors have changed */
+    private BufferedImage tile(int t, int gridWidth, double scaleX, double scaleY) {
+        int first = t * TILE_ROWS * VIRTUAL_COLUMNS;
+        int count = Math.min(count() - first, TILE_ROWS * VIRTUAL_COLUMNS);
+        Tile tile = tiles.get(t);
+        if (tile != null) {
+            for (int i = 0; i < count; i++) {
+                if (tile.rgb[i] != rgbAt(first + i)) {
+                    tile = null;
+                    break;
+                }
+            }
+            if (tile != null) {
+                return tile.image;
+            }
+        }
+        int pitch = swatchSize + gap;
+        BufferedImage img = new BufferedImage(
+            Math.max(1, (int) Math.ceil(gridWidth * scaleX)), 
+            Math.max(1, (int) Math.ceil(TILE_ROWS * pitch * scaleY)), 
+            BufferedImage.TYPE_INT_ARGB);
+        int[] rgb = new int[count];
+        Graphics2D g = img.createGraphics();
+        try {
+            g.scale(scaleX, scaleY);
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, gridWidth, TILE_ROWS * pitch);
+            Rectangle r = new Rectangle(0, 0, swatchSize, swatchSize);
+            for (int i = 0; i < count; i++) {
+                Color c = swatchColor(first + i);
+                rgb[i] = c.getRGB();
+                r.x = gap + pitch * (i % VIRTUAL_COLUMNS);
+                r.y = gap + pitch * (i / VIRTUAL_COLUMNS);
+                paintSwatch(g, c, r);
+            }
+        } finally {
+            g.dispose();
+        }
+        tiles.put(t, new Tile(img, rgb));
+        return img;
+    }
+    
+    /** The color of the top and left edges of a swatch */
+    static Color highlight(Color c) {
+        return Color.BLACK.equals(c) ? Color.GRAY : c.brighter();
+    }
+    
+    /** The color of the bottom and right edges of a swatch */
+    static Color shadow(Color c) {
+        return Color.BLACK.equals(c) ? Color.GRAY.darker() : c.darker();
+    }
+    
+    /** Paint one beveled swatch */
+    static void paintSwatch(java.awt.Graphics g, Color c, Rectangle r) {
+        paintSwatch(g, c, highlight(c), shadow(c), r);
+    }
+    
+    /** Paint one beveled swatch with precomputed bevel colors */
+    static void paintSwatch(java.awt.Graphics g, Color c, Color highlight, 
+            Color shadow, Rectangle r) {
+        g.setColor(c);
+        g.fillRect(r.x,r.y,r.width,r.height);
+        g.setColor(highlight);
+        g.drawLine(r.x, r.y, r.x + r.width-1, r.y);
+        g.drawLine(r.x, r.y, r.x, r.y + r.height-1);
+        g.setColor(shadow);
+        g.drawLine(r.x+r.width-1, r.y + r.height-1, r.width+r.x-1, r.y+1);
+        g.drawLine(r.x+r.width-1, r.y + r.height-1, r.x, r.y + r.height-1);
     }
     
     @Override
     public String getNameAt(int x, int y) {
-        NamedColor nc = (NamedColor)getColorAt(x,y);
-        if (nc != null) {
-            return nc.getDisplayName();
-        } else {
+        int idx = indexForPoint(x, y);
+        if (idx < 0 || idx >= count()) {
             return null;
         }
+        if (table != null) {
+            return table.nameAt(idx);
+        }
+        Locale locale = Locale.getDefault();
+        DisplayNames names = displayNames;
+        if (names == null || !names.locale.equals(locale)) {
+            displayNames = names = new DisplayNames(locale, colors);
+        }
+        return names.get(colors, idx);
+    }
+    
+    /**
+     * The display names of a palette's colors, resolved once per locale so
+     * that naming the color under the mouse while dragging is an array read
+     * rather than a resource bundle lookup.
+     */
+    private static final class DisplayNames {
+        final Locale locale;
+        /** The colors the names were resolved for, to notice replaced slots */
+        private final NamedColor[] resolved;
+        private final String[] names;
+        
+        DisplayNames(Locale locale, NamedColor[] colors) {
+            this.locale = locale;
+            resolved = colors.clone();
+            names = new String[colors.length];
+            for (int i = 0; i < colors.length; i++) {
+                names[i] = colors[i].getDisplayName();
+            }
+        }
+        
+        String get(NamedColor[] colors, int index) {
+            if (resolved[index] != colors[index]) {
+                resolved[index] = colors[index];
+                names[index] = colors[index].getDisplayName();
+            }
+            return names[index];
+        }
     }
     
     protected int getCount() {
-        return colors.length;
+        return count();
     }
     
     Dimension calcSize() {
-        int count = colors.length;
+        if (virtual) {
+            int pitch = swatchSize + gap;
+            return new Dimension(VIRTUAL_COLUMNS * pitch + gap + SCROLLBAR_WIDTH,
+                VIRTUAL_ROWS * pitch + gap);
+        }
+        return calcSize(count(), swatchSize);
+    }
+    
+    /** The size of a grid of <code>count</code> swatches */
+    static Dimension calcSize(int count, int swatchSize) {
         //look for the square root of the count and multiply by the size
         double dblWidth = (swatchSize + gap) * Math.sqrt(count);
         int width = Math.round(Math.round(dblWidth));
@@ -134,7 +455,19 @@ class PredefinedPalette extends Palette {
     }
     
     private int indexForPoint (int x, int y) {
-        Dimension d = getSize();
+        if (virtual) {
+            int pitch = swatchSize + gap;
+            int col = x / pitch;
+            int row = y / pitch;
+            if (x < 0 || y < 0 || col >= VIRTUAL_COLUMNS || row >= VIRTUAL_ROWS) {
+                return -1;
+            }
+            return (firstRow + row) * VIRTUAL_COLUMNS + col;
+        }
+        return indexForPoint(x, y, getSize(), swatchSize);
+    }
+    
+    static int indexForPoint (int x, int y, Dimension d, int swatchSize) {
         if (y > d.height || x > d.width || y < 0 || x < 0) {
             return -1;
         }
@@ -146,8 +479,10 @@ class PredefinedPalette extends Palette {
     }
     
     private void rectForIndex(int idx, final Rectangle r) {
-        int count = colors.length;
-        Dimension d = getSize();
+        rectForIndex(idx, getSize(), swatchSize, r);
+    }
+    
+    static void rectForIndex(int idx, Dimension d, int swatchSize, final Rectangle r) {
         int rectsPerRow = d.width / (swatchSize + gap);
         r.x = gap + ((swatchSize + gap) * (idx % rectsPerRow));
         r.y = gap + ((swatchSize + gap) * (idx / rectsPerRow));
@@ -165,11 +500,13 @@ class PredefinedPalette extends Palette {
     }
     
     private static final Palette[] makePal () {
+        //The palettes sort their arrays, and the shared tables are read
+        //unlocked by the name indexes, so each palette gets its own copy
         Palette[] result = new Palette[] {
-            new PredefinedPalette("svg", SVGColors),
-            new PredefinedPalette("system", getSystemColors()),
+            new PredefinedPalette("svg", svgColors().clone()),
+            new PredefinedPalette("system", getSystemColors().clone()),
             RecentColors.getDefault(),
-            new PredefinedPalette("swing", getSwingColors())
+            new PredefinedPalette("swing", getSwingColors().clone())
         };
         return result;
     }
@@ -221,172 +558,173 @@ class PredefinedPalette extends Palette {
     }
     
     static String getColorName (Color c) {
-        for (SwingColor swingColor : swingColors) {
-            if (equals(swingColor, c)) {
-                return swingColor.getDisplayName();
-            }
-        }
-        for (NamedColor SVGColor : SVGColors) {
-            if (equals(SVGColor, c)) {
-                return SVGColor.getDisplayName();
-            }
-        }
-        return null;
+        return ColorNameIndex.displayName(c.getRGB());
     }
     
+    static NamedColor[] svgColors() {
+        return SvgColors.COLORS;
+    }
+
     static boolean equals (Color a, Color b) {
         return a.getRGB() == b.getRGB();
     }
     
-    private static final NamedColor[] SVGColors = new BasicNamedColor[] {
-        new BasicNamedColor("aliceblue", 240, 248, 255),
-        new BasicNamedColor("antiquewhite", 250, 235, 215),
-        new BasicNamedColor("aqua",  0, 255, 255),
-        new BasicNamedColor("aquamarine", 127, 255, 212),
-        new BasicNamedColor("azure", 240, 255, 255),
-        new BasicNamedColor("beige", 245, 245, 220),
-        new BasicNamedColor("bisque", 255, 228, 196),
-        new BasicNamedColor("black",  0, 0, 0),
-        new BasicNamedColor("blanchedalmond", 255, 235, 205),
-        new BasicNamedColor("blue",  0, 0, 255),
-        new BasicNamedColor("blueviolet", 138, 43, 226),
-        new BasicNamedColor("brown", 165, 42, 42),
-        new BasicNamedColor("burlywood", 222, 184, 135),
-        new BasicNamedColor("cadetblue",  95, 158, 160),
-        new BasicNamedColor("chartreuse", 127, 255, 0),
-        new BasicNamedColor("chocolate", 210, 105, 30),
-        new BasicNamedColor("coral", 255, 127, 80),
-        new BasicNamedColor("cornflowerblue", 100, 149, 237),
-        new BasicNamedColor("cornsilk", 255, 248, 220),
-        new BasicNamedColor("crimson", 220, 20, 60),
-        new BasicNamedColor("cyan",  0, 255, 255),
-        new BasicNamedColor("darkblue",  0, 0, 139),
-        new BasicNamedColor("darkcyan",  0, 139, 139),
-        new BasicNamedColor("darkgoldenrod", 184, 134, 11),
-        new BasicNamedColor("darkgray", 169, 169, 169),
-        new BasicNamedColor("darkgreen",  0, 100, 0),
-        new BasicNamedColor("darkgrey", 169, 169, 169),
-        new BasicNamedColor("darkkhaki", 189, 183, 107),
-        new BasicNamedColor("darkmagenta", 139, 0, 139),
-        new BasicNamedColor("darkolivegreen",  85, 107, 47),
-        new BasicNamedColor("darkorange", 255, 140, 0),
-        new BasicNamedColor("darkorchid", 153, 50, 204),
-        new BasicNamedColor("darkred", 139, 0, 0),
-        new BasicNamedColor("darksalmon", 233, 150, 122),
-        new BasicNamedColor("darkseagreen", 143, 188, 143),
-        new BasicNamedColor("darkslateblue",  72, 61, 139),
-        new BasicNamedColor("darkslategray",  47, 79, 79),
-        new BasicNamedColor("darkslategrey",  47, 79, 79),
-        new BasicNamedColor("darkturquoise",  0, 206, 209),
-        new BasicNamedColor("darkviolet", 148, 0, 211),
-        new BasicNamedColor("deeppink", 255, 20, 147),
-        new BasicNamedColor("deepskyblue",  0, 191, 255),
-        new BasicNamedColor("dimgray", 105, 105, 105),
-        new BasicNamedColor("dimgrey", 105, 105, 105),
-        new BasicNamedColor("dodgerblue",  30, 144, 255),
-        new BasicNamedColor("firebrick", 178, 34, 34),
-        new BasicNamedColor("floralwhite", 255, 250, 240),
-        new BasicNamedColor("forestgreen",  34, 139, 34),
-        new BasicNamedColor("fuchsia", 255, 0, 255),
-        new BasicNamedColor("gainsboro", 220, 220, 220),
-        new BasicNamedColor("ghostwhite", 248, 248, 255),
-        new BasicNamedColor("gold", 255, 215, 0),
-        new BasicNamedColor("goldenrod", 218, 165, 32),
-        new BasicNamedColor("gray", 128, 128, 128),
-        new BasicNamedColor("grey", 128, 128, 128),
-        new BasicNamedColor("green",  0, 128, 0),
-        new BasicNamedColor("greenyellow", 173, 255, 47),
-        new BasicNamedColor("honeydew", 240, 255, 240),
-        new BasicNamedColor("hotpink", 255, 105, 180),
-        new BasicNamedColor("indianred", 205, 92, 92),
-        new BasicNamedColor("indigo",  75, 0, 130),
-        new BasicNamedColor("ivory", 255, 255, 240),
-        new BasicNamedColor("khaki", 240, 230, 140),
-        new BasicNamedColor("lavender", 230, 230, 250),
-        new BasicNamedColor("lavenderblush", 255, 240, 245),
-        new BasicNamedColor("lawngreen", 124, 252, 0),
-        new BasicNamedColor("lemonchiffon", 255, 250, 205),
-        new BasicNamedColor("lightblue", 173, 216, 230),
-        new BasicNamedColor("lightcoral", 240, 128, 128),
-        new BasicNamedColor("lightcyan", 224, 255, 255),
-        new BasicNamedColor("lightgoldenrodyellow", 250, 250, 210),
-        new BasicNamedColor("lightgray", 211, 211, 211),
-        new BasicNamedColor("lightgreen", 144, 238, 144),
-        new BasicNamedColor("lightgrey", 211, 211, 211),
-        new BasicNamedColor("lightpink", 255, 182, 193),
-        new BasicNamedColor("lightsalmon", 255, 160, 122),
-        new BasicNamedColor("lightseagreen",  32, 178, 170),
-        new BasicNamedColor("lightskyblue", 135, 206, 250),
-        new BasicNamedColor("lightslategray", 119, 136, 153),
-        new BasicNamedColor("lightslategrey", 119, 136, 153),
-        new BasicNamedColor("lightsteelblue", 176, 196, 222),
-        new BasicNamedColor("lightyellow", 255, 255, 224),
-        new BasicNamedColor("lime",  0, 255, 0),
-        new BasicNamedColor("limegreen",  50, 205, 50),
-        new BasicNamedColor("linen", 250, 240, 230),
-        new BasicNamedColor("magenta", 255, 0, 255),
-        new BasicNamedColor("maroon", 128, 0, 0),
-        new BasicNamedColor("mediumaquamarine", 102, 205, 170),
-        new BasicNamedColor("mediumblue",  0, 0, 205),
-        new BasicNamedColor("mediumorchid", 186, 85, 211),
-        new BasicNamedColor("mediumpurple", 147, 112, 219),
-        new BasicNamedColor("mediumseagreen",  60, 179, 113),
-        new BasicNamedColor("mediumslateblue", 123, 104, 238),
-        new BasicNamedColor("mediumspringgreen",  0, 250, 154),
-        new BasicNamedColor("mediumturquoise",  72, 209, 204),
-        new BasicNamedColor("mediumvioletred", 199, 21, 133),
-        new BasicNamedColor("midnightblue",  25, 25, 112),
-        new BasicNamedColor("mintcream", 245, 255, 250),
-        new BasicNamedColor("mistyrose", 255, 228, 225),
-        new BasicNamedColor("moccasin", 255, 228, 181),
-        new BasicNamedColor("navajowhite", 255, 222, 173),
-        new BasicNamedColor("navy",  0, 0, 128),
-        new BasicNamedColor("oldlace", 253, 245, 230),
-        new BasicNamedColor("olive", 128, 128, 0),
-        new BasicNamedColor("olivedrab", 107, 142, 35),
-        new BasicNamedColor("orange", 255, 165, 0),
-        new BasicNamedColor("orangered", 255, 69, 0),
-        new BasicNamedColor("orchid", 218, 112, 214),
-        new BasicNamedColor("palegoldenrod", 238, 232, 170),
-        new BasicNamedColor("palegreen", 152, 251, 152),
-        new BasicNamedColor("paleturquoise", 175, 238, 238),
-        new BasicNamedColor("palevioletred", 219, 112, 147),
-        new BasicNamedColor("papayawhip", 255, 239, 213),
-        new BasicNamedColor("peachpuff", 255, 218, 185),
-        new BasicNamedColor("peru", 205, 133, 63),
-        new BasicNamedColor("pink", 255, 192, 203),
-        new BasicNamedColor("plum", 221, 160, 221),
-        new BasicNamedColor("powderblue", 176, 224, 230),
-        new BasicNamedColor("purple", 128, 0, 128),
-        new BasicNamedColor("red", 255, 0, 0),
-        new BasicNamedColor("rosybrown", 188, 143, 143),
-        new BasicNamedColor("royalblue",  65, 105, 225),
-        new BasicNamedColor("saddlebrown", 139, 69, 19),
-        new BasicNamedColor("salmon", 250, 128, 114),
-        new BasicNamedColor("sandybrown", 244, 164, 96),
-        new BasicNamedColor("seagreen",  46, 139, 87),
-        new BasicNamedColor("seashell", 255, 245, 238),
-        new BasicNamedColor("sienna", 160, 82, 45),
-        new BasicNamedColor("silver", 192, 192, 192),
-        new BasicNamedColor("skyblue", 135, 206, 235),
-        new BasicNamedColor("slateblue", 106, 90, 205),
-        new BasicNamedColor("slategray", 112, 128, 144),
-        new BasicNamedColor("slategrey", 112, 128, 144),
-        new BasicNamedColor("snow", 255, 250, 250),
-        new BasicNamedColor("springgreen",  0, 255, 127),
-        new BasicNamedColor("steelblue",  70, 130, 180),
-        new BasicNamedColor("tan", 210, 180, 140),
-        new BasicNamedColor("teal",  0, 128, 128),
-        new BasicNamedColor("thistle", 216, 191, 216),
-        new BasicNamedColor("tomato", 255, 99, 71),
-        new BasicNamedColor("turquoise",  64, 224, 208),
-        new BasicNamedColor("violet", 238, 130, 238),
-        new BasicNamedColor("wheat", 245, 222, 179),
-        new BasicNamedColor("white", 255, 255, 255),
-        new BasicNamedColor("whitesmoke", 245, 245, 245),
-        new BasicNamedColor("yellow", 255, 255, 0),
-        new BasicNamedColor("yellowgreen", 154, 205, 50)
-    }; //NOI18N
+    /**
+     * The SVG / X11 colors, created on first use rather than whenever this
+     * class is loaded.
+     */
+    private static final class SvgColors {
+
+        static final NamedColor[] COLORS = new BasicNamedColor[] {
+            new BasicNamedColor("aliceblue", 240, 248, 255),
+            new BasicNamedColor("antiquewhite", 250, 235, 215),
+            new BasicNamedColor("aqua",  0, 255, 255),
+            new BasicNamedColor("aquamarine", 127, 255, 212),
+            new BasicNamedColor("azure", 240, 255, 255),
+            new BasicNamedColor("beige", 245, 245, 220),
+            new BasicNamedColor("bisque", 255, 228, 196),
+            new BasicNamedColor("black",  0, 0, 0),
+            new BasicNamedColor("blanchedalmond", 255, 235, 205),
+            new BasicNamedColor("blue",  0, 0, 255),
+            new BasicNamedColor("blueviolet", 138, 43, 226),
+            new BasicNamedColor("brown", 165, 42, 42),
+            new BasicNamedColor("burlywood", 222, 184, 135),
+            new BasicNamedColor("cadetblue",  95, 158, 160),
+            new BasicNamedColor("chartreuse", 127, 255, 0),
+            new BasicNamedColor("chocolate", 210, 105, 30),
+            new BasicNamedColor("coral", 255, 127, 80),
+            new BasicNamedColor("cornflowerblue", 100, 149, 237),
+            new BasicNamedColor("cornsilk", 255, 248, 220),
+            new BasicNamedColor("crimson", 220, 20, 60),
+            new BasicNamedColor("cyan",  0, 255, 255),
+            new BasicNamedColor("darkblue",  0, 0, 139),
+            new BasicNamedColor("darkcyan",  0, 139, 139),
+            new BasicNamedColor("darkgoldenrod", 184, 134, 11),
+            new BasicNamedColor("darkgray", 169, 169, 169),
+            new BasicNamedColor("darkgreen",  0, 100, 0),
+            new BasicNamedColor("darkgrey", 169, 169, 169),
+            new BasicNamedColor("darkkhaki", 189, 183, 107),
+            new BasicNamedColor("darkmagenta", 139, 0, 139),
+            new BasicNamedColor("darkolivegreen",  85, 107, 47),
+            new BasicNamedColor("darkorange", 255, 140, 0),
+            new BasicNamedColor("darkorchid", 153, 50, 204),
+            new BasicNamedColor("darkred", 139, 0, 0),
+            new BasicNamedColor("darksalmon", 233, 150, 122),
+            new BasicNamedColor("darkseagreen", 143, 188, 143),
+            new BasicNamedColor("darkslateblue",  72, 61, 139),
+            new BasicNamedColor("darkslategray",  47, 79, 79),
+            new BasicNamedColor("darkslategrey",  47, 79, 79),
+            new BasicNamedColor("darkturquoise",  0, 206, 209),
+            new BasicNamedColor("darkviolet", 148, 0, 211),
+            new BasicNamedColor("deeppink", 255, 20, 147),
+            new BasicNamedColor("deepskyblue",  0, 191, 255),
+            new BasicNamedColor("dimgray", 105, 105, 105),
+            new BasicNamedColor("dimgrey", 105, 105, 105),
+            new BasicNamedColor("dodgerblue",  30, 144, 255),
+            new BasicNamedColor("firebrick", 178, 34, 34),
+            new BasicNamedColor("floralwhite", 255, 250, 240),
+            new BasicNamedColor("forestgreen",  34, 139, 34),
+            new BasicNamedColor("fuchsia", 255, 0, 255),
+            new BasicNamedColor("gainsboro", 220, 220, 220),
+            new BasicNamedColor("ghostwhite", 248, 248, 255),
+            new BasicNamedColor("gold", 255, 215, 0),
+            new BasicNamedColor("goldenrod", 218, 165, 32),
+            new BasicNamedColor("gray", 128, 128, 128),
+            new BasicNamedColor("grey", 128, 128, 128),
+            new BasicNamedColor("green",  0, 128, 0),
+            new BasicNamedColor("greenyellow", 173, 255, 47),
+            new BasicNamedColor("honeydew", 240, 255, 240),
+            new BasicNamedColor("hotpink", 255, 105, 180),
+            new BasicNamedColor("indianred", 205, 92, 92),
+            new BasicNamedColor("indigo",  75, 0, 130),
+            new BasicNamedColor("ivory", 255, 255, 240),
+            new BasicNamedColor("khaki", 240, 230, 140),
+            new BasicNamedColor("lavender", 230, 230, 250),
+            new BasicNamedColor("lavenderblush", 255, 240, 245),
+            new BasicNamedColor("lawngreen", 124, 252, 0),
+            new BasicNamedColor("lemonchiffon", 255, 250, 205),
+            new BasicNamedColor("lightblue", 173, 216, 230),
+            new BasicNamedColor("lightcoral", 240, 128, 128),
+            new BasicNamedColor("lightcyan", 224, 255, 255),
+            new BasicNamedColor("lightgoldenrodyellow", 250, 250, 210),
+            new BasicNamedColor("lightgray", 211, 211, 211),
+            new BasicNamedColor("lightgreen", 144, 238, 144),
+            new BasicNamedColor("lightgrey", 211, 211, 211),
+            new BasicNamedColor("lightpink", 255, 182, 193),
+            new BasicNamedColor("lightsalmon", 255, 160, 122),
+            new BasicNamedColor("lightseagreen",  32, 178, 170),
+            new BasicNamedColor("lightskyblue", 135, 206, 250),
+            new BasicNamedColor("lightslategray", 119, 136, 153),
+            new BasicNamedColor("lightslategrey", 119, 136, 153),
+            new BasicNamedColor("lightsteelblue", 176, 196, 222),
+            new BasicNamedColor("lightyellow", 255, 255, 224),
+            new BasicNamedColor("lime",  0, 255, 0),
+            new BasicNamedColor("limegreen",  50, 205, 50),
+            new BasicNamedColor("linen", 250, 240, 230),
+            new BasicNamedColor("magenta", 255, 0, 255),
+            new BasicNamedColor("maroon", 128, 0, 0),
+            new BasicNamedColor("mediumaquamarine", 102, 205, 170),
+            new BasicNamedColor("mediumblue",  0, 0, 205),
+            new BasicNamedColor("mediumorchid", 186, 85, 211),
+            new BasicNamedColor("mediumpurple", 147, 112, 219),
+            new BasicNamedColor("mediumseagreen",  60, 179, 113),
+            new BasicNamedColor("mediumslateblue", 123, 104, 238),
+            new BasicNamedColor("mediumspringgreen",  0, 250, 154),
+            new BasicNamedColor("mediumturquoise",  72, 209, 204),
+            new BasicNamedColor("mediumvioletred", 199, 21, 133),
+            new BasicNamedColor("midnightblue",  25, 25, 112),
+            new BasicNamedColor("mintcream", 245, 255, 250),
+            new BasicNamedColor("mistyrose", 255, 228, 225),
+            new BasicNamedColor("moccasin", 255, 228, 181),
+            new BasicNamedColor("navajowhite", 255, 222, 173),
+            new BasicNamedColor("navy",  0, 0, 128),
+            new BasicNamedColor("oldlace", 253, 245, 230),
+            new BasicNamedColor("olive", 128, 128, 0),
+            new BasicNamedColor("olivedrab", 107, 142, 35),
+            new BasicNamedColor("orange", 255, 165, 0),
+            new BasicNamedColor("orangered", 255, 69, 0),
+            new BasicNamedColor("orchid", 218, 112, 214),
+            new BasicNamedColor("palegoldenrod", 238, 232, 170),
+            new BasicNamedColor("palegreen", 152, 251, 152),
+            new BasicNamedColor("paleturquoise", 175, 238, 238),
+            new BasicNamedColor("palevioletred", 219, 112, 147),
+            new BasicNamedColor("papayawhip", 255, 239, 213),
+            new BasicNamedColor("peachpuff", 255, 218, 185),
+            new BasicNamedColor("peru", 205, 133, 63),
+            new BasicNamedColor("pink", 255, 192, 203),
+            new BasicNamedColor("plum", 221, 160, 221),
+            new BasicNamedColor("powderblue", 176, 224, 230),
+            new BasicNamedColor("purple", 128, 0, 128),
+            new BasicNamedColor("red", 255, 0, 0),
+            new BasicNamedColor("rosybrown", 188, 143, 143),
+            new BasicNamedColor("royalblue",  65, 105, 225),
+            new BasicNamedColor("saddlebrown", 139, 69, 19),
+            new BasicNamedColor("salmon", 250, 128, 114),
+            new BasicNamedColor("sandybrown", 244, 164, 96),
+            new BasicNamedColor("seagreen",  46, 139, 87),
+            new BasicNamedColor("seashell", 255, 245, 238),
+            new BasicNamedColor("sienna", 160, 82, 45),
+            new BasicNamedColor("silver", 192, 192, 192),
+            new BasicNamedColor("skyblue", 135, 206, 235),
+            new BasicNamedColor("slateblue", 106, 90, 205),
+            new BasicNamedColor("slategray", 112, 128, 144),
+            new BasicNamedColor("slategrey", 112, 128, 144),
+            new BasicNamedColor("snow", 255, 250, 250),
+            new BasicNamedColor("springgreen",  0, 255, 127),
+            new BasicNamedColor("steelblue",  70, 130, 180),
+            new BasicNamedColor("tan", 210, 180, 140),
+            new BasicNamedColor("teal",  0, 128, 128),
+            new BasicNamedColor("thistle", 216, 191, 216),
+            new BasicNamedColor("tomato", 255, 99, 71),
+            new BasicNamedColor("turquoise",  64, 224, 208),
+            new BasicNamedColor("violet", 238, 130, 238),
+            new BasicNamedColor("wheat", 245, 222, 179),
+            new BasicNamedColor("white", 255, 255, 255),
+            new BasicNamedColor("whitesmoke", 245, 245, 245),
+            new BasicNamedColor("yellow", 255, 255, 0),
+            new BasicNamedColor("yellowgreen", 154, 205, 50)
+        }; //NOI18N
+    }
     
     static class SwingColor extends BasicNamedColor {
         SwingColor(String name, int r, int g, int b) {
@@ -408,7 +746,7 @@ class PredefinedPalette extends Palette {
     }
 
     private static SwingColor[] swingColors = null;
-    private static SwingColor[] getSwingColors() {
+    static SwingColor[] getSwingColors() {
         if (swingColors != null) {
             return swingColors;
         }
@@ -530,19 +868,25 @@ class PredefinedPalette extends Palette {
         return swingColors;
     }
     
-    /** Names of system colors. <em>Note:</em> not localizable,
-     * those names corresponds to programatical names. */
-    private static final String systemGenerate[] = {
-        "activeCaption", "activeCaptionBorder", // NOI18N
-        "activeCaptionText", "control", "controlDkShadow", // NOI18N
-        "controlHighlight", "controlLtHighlight", // NOI18N
-        "controlShadow", "controlText", "desktop", // NOI18N
-        "inactiveCaption", "inactiveCaptionBorder", // NOI18N
-        "inactiveCaptionText", "info", "infoText", "menu", // NOI18N
-        "menuText", "scrollbar", "text", "textHighlight", // NOI18N
-        "textHighlightText", "textInactiveText", "textText", // NOI18N
-        "window", "windowBorder", "windowText"}; // NOI18N
-        
+    /**
+     * The system colors, created on first use rather than whenever this
+     * class is loaded.
+     */
+    private static final class SystemColors {
+
+        /** Names of system colors. <em>Note:</em> not localizable,
+         * those names corresponds to programatical names. */
+        private static final String systemGenerate[] = {
+            "activeCaption", "activeCaptionBorder", // NOI18N
+            "activeCaptionText", "control", "controlDkShadow", // NOI18N
+            "controlHighlight", "controlLtHighlight", // NOI18N
+            "controlShadow", "controlText", "desktop", // NOI18N
+            "inactiveCaption", "inactiveCaptionBorder", // NOI18N
+            "inactiveCaptionText", "info", "infoText", "menu", // NOI18N
+            "menuText", "scrollbar", "text", "textHighlight", // NOI18N
+            "textHighlightText", "textInactiveText", "textText", // NOI18N
+            "window", "windowBorder", "windowText"}; // NOI18N
+
         /** System colors used in System Palette. */
         private static final Color sColors[] = {
             SystemColor.activeCaption, SystemColor.activeCaptionBorder,
@@ -560,6 +904,15 @@ class PredefinedPalette extends Palette {
             SystemColor.windowText
         };
 
+        static final NamedColor[] COLORS = new BasicNamedColor[sColors.length];
+
+        static {
+            for (int i=0; i < sColors.length; i++) {
+                COLORS[i] = new SysColor(systemGenerate[i], sColors[i]);
+            }
+        }
+    }
+
         private static class SysColor extends BasicNamedColor {
             SysColor(String name, Color scolor) {
                 super(name, scolor.getRed(), scolor.getGreen(), scolor.getBlue());
@@ -578,15 +931,8 @@ class PredefinedPalette extends Palette {
         
         
         
-     private static NamedColor[] systemColors=null;
-     private static NamedColor[] getSystemColors() {
-         if (systemColors == null) {
-             systemColors = new BasicNamedColor[sColors.length];
-             for (int i=0; i < sColors.length; i++) {
-                 systemColors[i] = new SysColor(systemGenerate[i], sColors[i]);
-             }
-         }
-         return systemColors;
+     static NamedColor[] getSystemColors() {
+         return SystemColors.COLORS;
      }
      
     
@@ -18,224 +18,793 @@ package net.java.dev.colorchooser;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.MissingResourceException;
-import java.util.ResourceBundle;
-import java.util.Stack;
+import java.util.NoSuchElementException;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 /** Palette implementation that can have recent colors added to it.
+ * Colors are kept in a fixed-capacity ring buffer of packed RGB values,
+ * newest overwriting oldest, with an open-addressing hash index from
+ * RGB value to ring slot, so finding a color already in the list is
+ * constant-time however large the capacity.  Each add then publishes a
+ * copy-on-write Snapshot of the whole list, so adding a color is O(size) in
+ * time and allocation.  The capacity defaults to 64 and may be set with the
+ * system property <code>colorchooser.recentColors</code>.
+ * <p>
+ * The swatch grid, newest first, is rendered into a cached image.  Adding a
+ * color shifts the existing swatches along with a few blits per row and
+ * paints only the new one, rather than repainting the whole grid.
+ * <p>
+ * Changes are written to preferences on a background thread once no color
+ * has been added for SAVE_DELAY milliseconds - or MAX_SAVE_DELAY after the
+ * first unsaved change, if colors keep being added - and on
+ * <code>flush()</code> and JVM shutdown.  Failures are passed to
+ * any registered PersistenceListener, or logged if there are none; those
+ * of the default instance go to the listeners registered with
+ * <code>ColorChooser.addPersistenceListener()</code>.
+ * <p>
+ * Writers serialize on the instance's monitor; each change publishes an
+ * immutable Snapshot, which readers - painting, hit testing, background
+ * threads - use without locking.  Change listeners are called on the event
+ * thread, coalesced, and can compare <code>version()</code> with the last
+ * version they saw to skip redundant work.
+ * <p>
+ * Several JVMs can share one list through a SharedRecentColorsFile - for the
+ * default instance, the file named by the system property
+ * <code>colorchooser.recentColorsFile</code>.  Each added color is merged
+ * into the file on the writer thread, and the same thread checks the file's
+ * sequence number every SHARED_POLL_INTERVAL milliseconds - a read from
+ * mapped memory, not a system call - and adopts the file's colors when
+ * another process has changed them.
  *
  * @author  Tim Boudreau
  */
 class RecentColors extends Palette {
-    private Palette palette; 
-    private boolean changed=true;
-    /** Creates a new instance of RecentColors */
-    private RecentColors() {
+    static final int DEFAULT_CAPACITY = 64;
+    static final long SAVE_DELAY = 500;
+    static final long MAX_SAVE_DELAY = 5000;
+    static final long SHARED_POLL_INTERVAL = 20;
+    private final int capacity;
+    /** Ring of opaque RGB values; the newest is at head - 1 */
+    private final int[] rgb;
+    private final String[] names;
+    private final String[] codes;
+    private final RecentColor[] swatches;
+    private int head;
+    private int size;
+    /** Ring slot + 1 for each color, keyed by RGB; 0 means empty */
+    private final int[] index;
+    private final Preferences prefs;
+    /** Serializes writes to preferences, which happen outside the monitor */
+    private final Object writeLock = new Object();
+    private boolean dirty;
+    /** System.nanoTime() of the first change since the last save */
+    private long dirtySince;
+    private ScheduledFuture<?> pendingSave;
+    private final ScheduledExecutorService writer;
+    private final LongSupplier nanoTime;
+    private final List<PersistenceListener> listeners = new CopyOnWriteArrayList<>();
+    private final int swatchSize;
+    private final Dimension gridSize;
+    private final Rectangle scratch = new Rectangle();
+    private static final RecentColor EMPTY = new DummyColor();
+    /** The swatch grid at the last device scale it was painted at */
+    private BufferedImage image;
+    private double imageScaleX;
+    private double imageScaleY;
+    /** The snapshot the image shows, guarded by imageLock */
+    private Snapshot painted;
+    private final Object imageLock = new Object();
+    private long version;
+    private int epoch;
+    private long added;
+    private volatile Snapshot snapshot = new Snapshot(0, 0, 0, new int[0], 
+        new RecentColor[0]);
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean changePending = new AtomicBoolean();
+    private volatile SharedRecentColorsFile shared;
+    private ScheduledFuture<?> sharedWatch;
+    /** The file's sequence number when last read or written; only used on
+     * the writer thread */
+    private long sharedSequence = -1;
+    
+    /** Creates a new instance of RecentColors
+     * @param capacity the maximum number of colors kept
+     * @param prefs where to persist them, or null for nowhere
+     */
+    RecentColors(int capacity, Preferences prefs) {
+        this(capacity, prefs, Writer.EXECUTOR, System::nanoTime);
+    }
+    
+    /** Creates a new instance of RecentColors
+     * @param capacity the maximum number of colors kept
+     * @param prefs where to persist them, or null for nowhere
+     * @param writer runs saves and shared file updates
+     * @param nanoTime the clock saves are delayed by
+     */
+    RecentColors(int capacity, Preferences prefs, ScheduledExecutorService writer,
+            LongSupplier nanoTime) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be > 0: " + capacity);
+        }
+        this.capacity = capacity;
+        this.prefs = prefs;
+        this.writer = writer;
+        this.nanoTime = nanoTime;
+        rgb = new int[capacity];
+        names = new String[capacity];
+        codes = new String[capacity];
+        swatches = new RecentColor[capacity];
+        index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        swatchSize = PredefinedPalette.swatchSize(capacity);
+        gridSize = PredefinedPalette.calcSize(capacity, swatchSize);
+    }
+    
+    /** An immutable view of the recent colors at one moment */
+    static final class Snapshot {
+        final long version;
+        /** Changes whenever the colors are replaced rather than added to */
+        final int epoch;
+        /** The number of colors added since the epoch began */
+        final long added;
+        private final int[] rgb;
+        private final RecentColor[] colors;
+        
+        private Snapshot(long version, int epoch, long added, int[] rgb, 
+                RecentColor[] colors) {
+            this.version = version;
+            this.epoch = epoch;
+            this.added = added;
+            this.rgb = rgb;
+            this.colors = colors;
+        }
+        
+        int size() {
+            return rgb.length;
+        }
+        
+        /** Get the RGB value of a color by recency, 0 being the newest */
+        int rgbAt(int recency) {
+            return rgb[recency];
+        }
+        
+        NamedColor colorAt(int recency) {
+            return colors[recency];
+        }
+    }
+    
+    /** Get the current colors, without locking */
+    Snapshot snapshot() {
+        return snapshot;
+    }
+    
+    /** Get the version of the current snapshot, which increases with 
+     * every change */
+    long version() {
+        return snapshot.version;
+    }
+    
+    /** Listen for changes; listeners are called on the event thread */
+    void addChangeListener(ChangeListener l) {
+        changeListeners.add(l);
+    }
+    
+    void removeChangeListener(ChangeListener l) {
+        changeListeners.remove(l);
     }
     
-    private Palette getWrapped() {
-        if (changed || palette == null) {
-            palette = createPalette();
-            changed = false;
+    /** Publish the current state of the ring as a new snapshot.  Called
+     * with the monitor held. */
+    private void publish() {
+        int[] values = new int[size];
+        RecentColor[] colors = new RecentColor[size];
+        for (int i = 0; i < size; i++) {
+            int slot = slot(i);
+            values[i] = rgb[slot];
+            colors[i] = swatches[slot];
+        }
+        snapshot = new Snapshot(++version, epoch, added, values, colors);
+        if (!changeListeners.isEmpty() && changePending.compareAndSet(false, true)) {
+            EventQueue.invokeLater(() -> {
+                changePending.set(false);
+                ChangeEvent e = new ChangeEvent(this);
+                for (ChangeListener l : changeListeners) {
+                    l.stateChanged(e);
+                }
+            });
         }
-        return palette;
     }
     
     @Override
     public java.awt.Color getColorAt(int x, int y) {
-        return getWrapped().getColorAt(x,y);
+        int idx = PredefinedPalette.indexForPoint(x, y, gridSize, swatchSize);
+        if (idx < 0 || idx >= capacity) {
+            return null;
+        }
+        Snapshot s = snapshot;
+        return idx < s.size() ? s.colors[idx] : EMPTY;
     }
     
     @Override
     public String getDisplayName() {
-        try {
-            return ResourceBundle.getBundle(
-                "org.netbeans.swing.colorchooser.Bundle").getString("recent"); //NOI18N
-        } catch (MissingResourceException mre) {
-//            mre.printStackTrace();
-            return "Recent colors";
-        }
+        return ColorChooser.getString("recent"); //NOI18N
     }
     
     @Override
     public Dimension getSize() {
-        Dimension result = ((PredefinedPalette)getWrapped()).calcSize();
-        return result;
+        return new Dimension(gridSize);
     }
     
     @Override
     public void paintTo(java.awt.Graphics g) {
-        getWrapped().paintTo(g);
+        Graphics2D gg = (Graphics2D) g;
+        AffineTransform xform = gg.getTransform();
+        BufferedImage img;
+        synchronized (imageLock) {
+            img = image(snapshot, xform.getScaleX(), xform.getScaleY());
+        }
+        if (img.getWidth() == gridSize.width && img.getHeight() == gridSize.height) {
+            gg.drawImage(img, 0, 0, null);
+        } else {
+            gg.drawImage(img, 0, 0, gridSize.width, gridSize.height, null);
+        }
+    }
+    
+    private BufferedImage image(Snapshot s, double scaleX, double scaleY) {
+        boolean sameScale = image != null && imageScaleX == scaleX 
+            && imageScaleY == scaleY;
+        //the number of colors added since the image was painted, or -1 to 
+        //repaint it all
+        int unpainted = painted == null || painted.epoch != s.epoch ? -1 
+            : (int) Math.min(capacity, s.added - painted.added);
+        //shifting by whole cells needs cells a whole number of pixels apart
+        boolean canShift = sameScale && unpainted >= 0 && unpainted < capacity
+            && scaleX == Math.rint(scaleX) && scaleY == Math.rint(scaleY);
+        if (sameScale && unpainted == 0) {
+            return image;
+        }
+        if (!sameScale) {
+            int w = Math.max(1, (int) Math.ceil(gridSize.width * scaleX));
+            int h = Math.max(1, (int) Math.ceil(gridSize.height * scaleY));
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            imageScaleX = scaleX;
+            imageScaleY = scaleY;
+        }
+        Graphics2D g = image.createGraphics();
+        try {
+            if (canShift) {
+                shift(g, unpainted, (int) scaleX, (int) scaleY);
+            }
+            g.scale(scaleX, scaleY);
+            if (!canShift) {
+                g.setColor(Color.BLACK);
+                g.fillRect(0, 0, gridSize.width, gridSize.height);
+            }
+            int count = canShift ? unpainted : capacity;
+            for (int i = 0; i < count; i++) {
+                PredefinedPalette.rectForIndex(i, gridSize, swatchSize, scratch);
+                //keep scaled bevel lines inside the cell, so cells can be
+                //moved independently
+                g.setClip(scratch);
+                PredefinedPalette.paintSwatch(g, i < s.size() ? s.colors[i] : EMPTY, 
+                    scratch);
+            }
+        } finally {
+            g.dispose();
+        }
+        painted = s;
+        return image;
+    }
+    
+    /** Move each painted swatch <code>by</code> cells further along the
+     * grid, one blit per run of cells that stays contiguous. */
+    private void shift(Graphics2D g, int by, int scaleX, int scaleY) {
+        int perRow = gridSize.width / (swatchSize + 1);
+        int pitchX = (swatchSize + 1) * scaleX;
+        int pitchY = (swatchSize + 1) * scaleY;
+        int rows = (capacity + perRow - 1) / perRow;
+        //work backwards so no source cell is overwritten before it is copied
+        for (int row = rows - 1; row >= 0; row--) {
+            int rowStart = Math.max(row * perRow, by);
+            int end = Math.min(capacity, (row + 1) * perRow);
+            while (end > rowStart) {
+                //the run starts where its source crosses into another row
+                int srcRowStart = ((end - by - 1) / perRow) * perRow;
+                int start = Math.max(rowStart, srcRowStart + by);
+                int src = start - by;
+                int srcX = (src % perRow) * pitchX + scaleX;
+                int srcY = (src / perRow) * pitchY + scaleY;
+                int destX = (start % perRow) * pitchX + scaleX;
+                int destY = row * pitchY + scaleY;
+                g.copyArea(srcX, srcY, (end - start) * pitchX - scaleX, 
+                    pitchY - scaleY, destX - srcX, destY - srcY);
+                end = start;
+            }
+        }
     }
     
     @Override
     public String getNameAt(int x, int y) {
-        return getWrapped().getNameAt(x,y);
+        Color c = getColorAt(x, y);
+        return c == null ? null : ((RecentColor) c).getDisplayName();
+    }
+    
+    int capacity() {
+        return capacity;
     }
     
-    Stack stack = new Stack();
-    void add(Color c) {
+    int size() {
+        return snapshot.size();
+    }
+    
+    /** Get the RGB value of a color by recency, 0 being the newest */
+    int rgbAt(int recency) {
+        return snapshot.rgbAt(recency);
+    }
+    
+    private int slot(int recency) {
+        if (recency < 0 || recency >= size) {
+            throw new IndexOutOfBoundsException(recency + " of " + size);
+        }
+        int slot = head - 1 - recency;
+        return slot < 0 ? slot + capacity : slot;
+    }
+    
+    synchronized void add(Color c) {
         if (c instanceof RecentColor) {
             return;
         }
-        if (stack.indexOf(c) == -1) {
+        //recent colors are opaque, so translucent variants of a color
+        //are the same entry
+        int value = c.getRGB() | 0xFF000000;
+        if (find(value) < 0) {
             String name = c instanceof PredefinedPalette.BasicNamedColor ? 
                 ((PredefinedPalette.BasicNamedColor) c).getDisplayName() : null;
             String toString = c instanceof PredefinedPalette.BasicNamedColor ?
                 ((PredefinedPalette.BasicNamedColor)c).toString() : null;
-            Color col = new RecentColor(name, c.getRed(), c.getGreen(), c.getBlue(), toString);
-            stack.push(col);
-            changed = true;
-            palette = null;
+            push(value, name, toString);
+            publish();
             if (c instanceof NamedColor) {
                 addToNameCache((NamedColor)c);
             }
-            saveToPrefs();
+            scheduleSave();
+            SharedRecentColorsFile file = shared;
+            if (file != null) {
+                String code = codes[slot(0)];
+                writer.execute(() -> commitShared(file, value, name, code));
+            }
         }
     }
-    public static final String INNER_DELIMITER="^$";
-    public static final String OUTER_DELIMITER="!*";
-    public void saveToPrefs() {
-        Preferences prefs = getPreferences();
-        if (prefs == null) return;
-        int count = 0;
-        StringBuilder sb = new StringBuilder();
-        Stack stack = new Stack();
-        stack.addAll(this.stack);
-        while (!stack.isEmpty() && count < 64) {
-            count++;
-            Color c = (Color) stack.pop();
-            if (c instanceof DummyColor) {
-                break;
+    
+    private void push(int value, String name, String toString) {
+        if (size == capacity) {
+            //overwrite the oldest
+            remove(rgb[head]);
+        } else {
+            size++;
+        }
+        rgb[head] = value;
+        names[head] = name;
+        //no need to store code RecentColor.toString() will generate anyway
+        codes[head] = defaultCode(value).equals(toString) ? null : toString;
+        swatches[head] = new RecentColor(name, value, codes[head]);
+        insert(value, head);
+        added++;
+        head = head + 1 == capacity ? 0 : head + 1;
+    }
+    
+    static String defaultCode(int rgb) {
+        return "new java.awt.Color(" + ((rgb >> 16) & 0xFF) + "," 
+            + ((rgb >> 8) & 0xFF) + "," + (rgb & 0xFF) + ")"; //NOI18N
+    }
+    
+    private void clear() {
+        Arrays.fill(index, 0);
+        Arrays.fill(names, null);
+        Arrays.fill(codes, null);
+        Arrays.fill(swatches, null);
+        epoch++;
+        added = 0;
+        head = 0;
+        size = 0;
+    }
+    
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    /** Returns the ring slot holding a value, or -1 */
+    private int find(int value) {
+        int mask = index.length - 1;
+        for (int i = hash(value) & mask; index[i] != 0; i = (i + 1) & mask) {
+            if (rgb[index[i] - 1] == value) {
+                return index[i] - 1;
             }
-            String name="null";
-            if (c instanceof PredefinedPalette.BasicNamedColor) {
-                PredefinedPalette.BasicNamedColor nc = (PredefinedPalette.BasicNamedColor) c;
-                name = nc.getDisplayName();
+        }
+        return -1;
+    }
+    
+    private void insert(int value, int slot) {
+        int mask = index.length - 1;
+        int i = hash(value) & mask;
+        while (index[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        index[i] = slot + 1;
+    }
+    
+    private void remove(int value) {
+        int mask = index.length - 1;
+        int i = hash(value) & mask;
+        while (rgb[index[i] - 1] != value) {
+            i = (i + 1) & mask;
+        }
+        //shift back any later entries of the probe sequence that would
+        //otherwise become unreachable
+        for (int j = (i + 1) & mask; index[j] != 0; j = (j + 1) & mask) {
+            int home = hash(rgb[index[j] - 1]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                index[i] = index[j];
+                i = j;
             }
-            if (name == "null") { //NOI18N
-                name = null;
+        }
+        index[i] = 0;
+    }
+    
+    /** Notified when recent colors cannot be loaded or saved */
+    interface PersistenceListener {
+        void persistenceFailed(RecentColors colors, Exception e);
+    }
+    
+    void addPersistenceListener(PersistenceListener l) {
+        listeners.add(l);
+    }
+    
+    void removePersistenceListener(PersistenceListener l) {
+        listeners.remove(l);
+    }
+    
+    private void failed(Exception e) {
+        if (listeners.isEmpty()) {
+            log(e);
+        }
+        for (PersistenceListener l : listeners) {
+            l.persistenceFailed(this, e);
+        }
+    }
+    
+    private static void log(Exception e) {
+        Logger.getLogger(RecentColors.class.getName()).log(Level.WARNING,
+                "Could not store recent colors", e); //NOI18N
+    }
+    
+    private static final class Writer {
+        static final ScheduledExecutorService EXECUTOR =
+                Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Recent colors writer"); //NOI18N
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+    
+    /** Keep these colors in step with a file shared with other JVMs.  If
+     * the file is empty it is given the current colors; otherwise they are
+     * replaced by the file's. */
+    synchronized void share(SharedRecentColorsFile file) {
+        unshare();
+        shared = file;
+        writer.execute(() -> {
+            try {
+                file.update(current -> {
+                    if (current.length > 0) {
+                        return null;
+                    }
+                    synchronized (this) {
+                        return encode(file.maxPayload());
+                    }
+                });
+            } catch (IOException e) {
+                failed(e);
             }
-            sb.append (name);
-            sb.append(INNER_DELIMITER);
-            sb.append (c.getRed());
-            sb.append (INNER_DELIMITER);
-            sb.append(c.getGreen());
-            sb.append (INNER_DELIMITER);
-            sb.append(c.getBlue());
-            sb.append (INNER_DELIMITER);
-            if (c instanceof PredefinedPalette.BasicNamedColor) {
-                sb.append(c.toString());
-            } else {
-                sb.append('x');
+            reloadShared(file);
+        });
+        sharedWatch = writer.scheduleWithFixedDelay(() -> {
+            if (file.sequence() != sharedSequence) {
+                reloadShared(file);
             }
-            sb.append (OUTER_DELIMITER); //NOI18N
+        }, SHARED_POLL_INTERVAL, SHARED_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+    
+    /** Stop following the shared file, if any; does not close it. */
+    synchronized void unshare() {
+        if (sharedWatch != null) {
+            sharedWatch.cancel(false);
+            sharedWatch = null;
         }
-        prefs.put("recentColors", sb.toString()); //NOI18N
+        shared = null;
     }
     
-    static Map<Integer, NamedColor> namedMap;
-    static NamedColor findNamedColor (Color color) {
-        if (namedMap == null) {
-            return null;
+    /** Merge a newly added color into the shared file.  Runs on the writer
+     * thread. */
+    private void commitShared(SharedRecentColorsFile file, int value, String name, 
+            String code) {
+        int[] values = new int[capacity];
+        String[] sharedNames = new String[capacity];
+        String[] sharedCodes = new String[capacity];
+        int[] count = new int[1];
+        boolean[] foreign = new boolean[1];
+        try {
+            long sequence = file.update(current -> {
+                //if nobody else wrote since we last looked, the file holds
+                //what we held before this color was added - unless a reload
+                //since then replaced it
+                foreign[0] = file.sequence() != sharedSequence || !contains(value);
+                int n = current.length == 0 ? 0 : RecentColorsCodec.decode(
+                        current, values, sharedNames, sharedCodes);
+                for (int i = 0; i < n; i++) {
+                    if (values[i] == value) {
+                        count[0] = n;
+                        return null;
+                    }
+                }
+                n = Math.min(n, capacity - 1);
+                System.arraycopy(values, 0, values, 1, n);
+                System.arraycopy(sharedNames, 0, sharedNames, 1, n);
+                System.arraycopy(sharedCodes, 0, sharedCodes, 1, n);
+                values[0] = value;
+                sharedNames[0] = name;
+                sharedCodes[0] = code;
+                count[0] = n + 1;
+                return RecentColorsCodec.encode(values, sharedNames, sharedCodes, 
+                        count[0], file.maxPayload());
+            });
+            if (foreign[0]) {
+                replace(values, sharedNames, sharedCodes, count[0]);
+            }
+            sharedSequence = sequence;
+        } catch (IOException | IllegalArgumentException e) {
+            failed(e);
         }
-        NamedColor result = (NamedColor)namedMap.get(color.getRGB());
-        return result;
     }
     
-    static void addToNameCache (NamedColor color) {
-        Map<Integer, NamedColor> map = namedMap;
-        if (map == null) {
-            synchronized(RecentColors.class) {
-                map = namedMap;
-                if (map == null) {
-                    map = namedMap = new HashMap<>(40);
+    private synchronized boolean contains(int value) {
+        return find(value) >= 0;
+    }
+    
+    /** Adopt the colors in the shared file.  Runs on the writer thread. */
+    private void reloadShared(SharedRecentColorsFile file) {
+        if (shared != file) {
+            return;
+        }
+        long[] sequence = new long[1];
+        try {
+            byte[] data = file.read(sequence);
+            if (data.length > 0) {
+                int[] values = new int[capacity];
+                String[] sharedNames = new String[capacity];
+                String[] sharedCodes = new String[capacity];
+                int count = RecentColorsCodec.decode(data, values, sharedNames, 
+                        sharedCodes);
+                replace(values, sharedNames, sharedCodes, count);
+            }
+            sharedSequence = sequence[0];
+        } catch (IOException | IllegalArgumentException e) {
+            //don't report the same failure every poll
+            sharedSequence = sequence[0];
+            failed(e);
+        }
+    }
+    
+    private synchronized void scheduleSave() {
+        if (prefs == null) return;
+        long now = nanoTime.getAsLong();
+        if (!dirty) {
+            dirty = true;
+            dirtySince = now;
+        }
+        if (pendingSave != null) {
+            pendingSave.cancel(false);
+        }
+        //each change pushes the save back, but not past MAX_SAVE_DELAY
+        long overdue = TimeUnit.NANOSECONDS.toMillis(now - dirtySince);
+        long delay = Math.max(0, Math.min(SAVE_DELAY, MAX_SAVE_DELAY - overdue));
+        pendingSave = writer.schedule(this::saveToPrefs,
+                delay, TimeUnit.MILLISECONDS);
+    }
+    
+    /** Write any pending changes to preferences and flush them to the
+     * backing store, blocking until done. */
+    public void flush() {
+        if (prefs == null) return;
+        saveToPrefs();
+        try {
+            prefs.flush();
+        } catch (BackingStoreException | IllegalStateException e) {
+            failed(e);
+        }
+    }
+    
+    /** Key of the binary format written by RecentColorsCodec */
+    static final String KEY = "recentColorData"; //NOI18N
+    /** Key of the original string format, migrated on load */
+    static final String LEGACY_KEY = "recentColors"; //NOI18N
+    public static final String INNER_DELIMITER="^$";
+    public static final String OUTER_DELIMITER="!*";
+    /** Write any pending changes to preferences now. */
+    public void saveToPrefs() {
+        if (prefs == null) return;
+        synchronized (writeLock) {
+            byte[] encoded;
+            synchronized (this) {
+                if (pendingSave != null) {
+                    pendingSave.cancel(false);
+                    pendingSave = null;
+                }
+                if (!dirty) {
+                    return;
                 }
+                dirty = false;
+                //byte arrays are stored base64 encoded, which must fit
+                encoded = encode(Preferences.MAX_VALUE_LENGTH * 3 / 4);
+            }
+            try {
+                prefs.putByteArray(KEY, encoded);
+                prefs.remove(LEGACY_KEY);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                failed(e);
             }
         }
-        namedMap.put (color.getRGB(), color);
     }
     
-    private Preferences getPreferences() {
+    private byte[] encode(int maxBytes) {
+        int[] values = new int[size];
+        String[] savedNames = new String[size];
+        String[] savedCodes = new String[size];
+        for (int i = 0; i < size; i++) {
+            int slot = slot(i);
+            values[i] = rgb[slot];
+            savedNames[i] = names[slot];
+            savedCodes[i] = codes[slot];
+        }
+        return RecentColorsCodec.encode(values, savedNames, savedCodes, size,
+                maxBytes);
+    }
+    
+    /** Names of colors picked from palettes, so they can be shown again
+     * wherever the same color turns up */
+    private static final NamedColorCache NAMES = new NamedColorCache(
+            NamedColorCache.DEFAULT_SIZE);
+    
+    static NamedColor findNamedColor (Color color) {
+        return NAMES.get(color.getRGB());
+    }
+    
+    static void addToNameCache (NamedColor color) {
+        NAMES.put(color);
+    }
+    
+    private static Preferences getPreferences() {
         try {
-            Preferences base = Preferences.userNodeForPackage(getClass());
+            Preferences base = Preferences.userNodeForPackage(RecentColors.class);
             return base.node("1.5"); //NOI18N
         } catch (Exception ace) {
             return null;
         }
     }
     
-    public void loadFromPrefs() {
-        Preferences prefs = getPreferences();
+    public synchronized void loadFromPrefs() {
         if (prefs == null) return;
-        String s = prefs.get("recentColors", null); //NOI18N
-        stack = new Stack();
-        Color[] col = new Color[64];
-        Arrays.fill(col, new DummyColor());
-        int count = 63;
+        clear();
+        //entries are stored newest first
+        int[] values = new int[capacity];
+        String[] loadedNames = new String[capacity];
+        String[] loadedCodes = new String[capacity];
+        int count = 0;
+        byte[] data = prefs.getByteArray(KEY, null);
         try {
-            if (s != null) {
-                //a weird but highly unlikely delimiter
-                StringTokenizer tok = new StringTokenizer(s,OUTER_DELIMITER); //NOI18N
-                while (tok.hasMoreTokens() && count >= 0) {
-                    String curr = tok.nextToken();
-                    //another weird but highly unlikely delimiter
-                    StringTokenizer tk2 = new StringTokenizer(curr, INNER_DELIMITER); //NOI18N
-                    while (tk2.hasMoreTokens()) {
-                        String name = tk2.nextToken();
-                        if ("null".equals(name)) {
-                            name = null;
-                        }
-                        int r = Integer.parseInt(tk2.nextToken());
-                        int g = Integer.parseInt(tk2.nextToken());
-                        int b = Integer.parseInt(tk2.nextToken());
-                        String toString = tk2.nextToken();
-                        if ("x".equals(toString)) { //NOI18N
-                            col[count] = new RecentColor(name,r,g,b);
-                        } else {
-                            col[count] = new RecentColor(name,r,g,b,toString);
-                        }
-                        addToNameCache((NamedColor)col[count]);
-                    }
-                    count--;
+            if (data != null) {
+                count = RecentColorsCodec.decode(data, values, loadedNames, loadedCodes);
+            } else {
+                String legacy = prefs.get(LEGACY_KEY, null);
+                if (legacy != null) {
+                    count = parseLegacy(legacy, values, loadedNames, loadedCodes);
+                    //rewrite in the binary format
+                    scheduleSave();
                 }
             }
-            stack.addAll(Arrays.asList(col));
-        } catch (NumberFormatException e) {
-            System.err.println("Error loading color preferences"); //NOI18N
-            e.printStackTrace();
+        } catch (IllegalArgumentException | NoSuchElementException e) {
+            failed(e);
         }
+        fill(values, loadedNames, loadedCodes, count);
     }
     
-    private Palette createPalette() {
-        PredefinedPalette.BasicNamedColor[] nc = (PredefinedPalette.BasicNamedColor[]) stack.toArray(new PredefinedPalette.BasicNamedColor[0]);
-        return new PredefinedPalette("", nc); //NOI18N
+    /** Replace the colors with ones from elsewhere, newest first */
+    private synchronized void replace(int[] values, String[] newNames, 
+            String[] newCodes, int count) {
+        clear();
+        fill(values, newNames, newCodes, count);
+        scheduleSave();
+    }
+    
+    private void fill(int[] values, String[] newNames, String[] newCodes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            if (find(values[i]) < 0) {
+                push(values[i], newNames[i], newCodes[i]);
+                if (newNames[i] != null) {
+                    addToNameCache(swatches[slot(0)]);
+                }
+            }
+        }
+        publish();
     }
     
-    private class RecentColor extends PredefinedPalette.BasicNamedColor {
+    /** Parse the original string format, skipping (and reporting) any
+     * malformed entries */
+    private int parseLegacy(String s, int[] values, String[] loadedNames, 
+            String[] loadedCodes) {
+        int count = 0;
+        //a weird but highly unlikely delimiter
+        StringTokenizer tok = new StringTokenizer(s,OUTER_DELIMITER); //NOI18N
+        while (tok.hasMoreTokens() && count < values.length) {
+            String curr = tok.nextToken();
+            try {
+                //another weird but highly unlikely delimiter
+                StringTokenizer tk2 = new StringTokenizer(curr, INNER_DELIMITER); //NOI18N
+                String name = tk2.nextToken();
+                if ("null".equals(name)) {
+                    name = null;
+                }
+                int r = Integer.parseInt(tk2.nextToken());
+                int g = Integer.parseInt(tk2.nextToken());
+                int b = Integer.parseInt(tk2.nextToken());
+                String toString = tk2.nextToken();
+                if ("x".equals(toString)) { //NOI18N
+                    toString = null;
+                }
+                values[count] = new Color(r, g, b).getRGB();
+                loadedNames[count] = name;
+                loadedCodes[count] = toString;
+                count++;
+            } catch (IllegalArgumentException | NoSuchElementException e) {
+                failed(e);
+            }
+        }
+        return count;
+    }
+    
+    private static class RecentColor extends PredefinedPalette.BasicNamedColor {
         String displayName;
         String toString = null;
-        RecentColor (String name, int r, int g, int b) {
-            super(name, r, g, b);
-            displayName = name;
-        }
 
-        RecentColor(String name, int r, int g, int b, String toString) {
-            this(name, r, g, b);
+        RecentColor(String name, int rgb, String toString) {
+            super(name, (rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
             displayName = name;
             this.toString = toString;
         }
         
-        @Override
-        public int compareTo(Object o) {
-            return stack.indexOf(o) - stack.indexOf(this);
-        }
-        
         @Override
         public String getDisplayName() {
             return displayName;
@@ -260,26 +829,48 @@ class RecentColors extends Palette {
             if (toString != null) {
                 return toString;
             } else {
-                return "new java.awt.Color(" + getRed() + "," + getGreen() 
-                    + "," + getBlue()+ ")"; //NOI18N
+                return defaultCode(getRGB());
             }
         }
     }
     
-    private static RecentColors defaultInstance = null;
-    public static final RecentColors getDefault() {
-        if (defaultInstance == null) {
-            defaultInstance = new RecentColors();
-            ((RecentColors)defaultInstance).loadFromPrefs();
+    private static final class DefaultHolder {
+        static final RecentColors INSTANCE = createDefault();
+        
+        private static RecentColors createDefault() {
+            RecentColors result = new RecentColors(Integer.getInteger(
+                "colorchooser.recentColors", DEFAULT_CAPACITY), //NOI18N
+                getPreferences());
+            result.addPersistenceListener((colors, e) -> {
+                if (!ColorChooser.recentColorsFailed(e)) {
+                    log(e);
+                }
+            });
+            result.loadFromPrefs();
+            String sharedFile = System.getProperty("colorchooser.recentColorsFile"); //NOI18N
+            if (sharedFile != null) {
+                try {
+                    result.share(new SharedRecentColorsFile(Paths.get(sharedFile),
+                            SharedRecentColorsFile.DEFAULT_SIZE));
+                } catch (IOException | RuntimeException e) {
+                    result.failed(e);
+                }
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(
+                    result::flush, "Recent colors flush")); //NOI18N
+            return result;
         }
-        return defaultInstance;
+    }
+    
+    public static final RecentColors getDefault() {
+        return DefaultHolder.INSTANCE;
     }
     
     /** A stand in for colors to fill up the array of recent colors until
      * we really have something to put there. */
-    private class DummyColor extends RecentColor {
+    private static class DummyColor extends RecentColor {
         DummyColor() {
-            super(null, 0,0,0);
+            super(null, 0xFF000000, null);
         }
         @Override
         public String getDisplayName() {
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2010-2022 Tim Boudreau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.java.dev.colorchooser;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of a list of recent colors, newest first. After a version
+ * byte, each color is a varint holding its ARGB value XORed with 0xFF000000
+ * (so opaque colors are small) shifted left two bits, with the low bits
+ * flagging whether a name and instantiation code follow. Each string is a
+ * varint reference: 0 followed by the length and UTF-8 bytes of a string not
+ * seen before, or 1 + the index of one that was.
+ *
+ * @author Tim Boudreau
+ */
+final class RecentColorsCodec {
+
+    static final int VERSION = 1;
+    private static final int HAS_NAME = 1;
+    private static final int HAS_CODE = 2;
+
+    private RecentColorsCodec() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Encode colors, dropping the oldest ones if they will not fit.
+     *
+     * @param argb Colors, newest first
+     * @param names Names, or nulls
+     * @param codes Instantiation code, or nulls
+     * @param count The number of colors
+     * @param maxBytes The maximum size of the result
+     * @return The encoded colors
+     */
+    static byte[] encode(int[] argb, String[] names, String[] codes, int count, int maxBytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(count * 4 + 1);
+        ByteArrayOutputStream entry = new ByteArrayOutputStream(32);
+        Map<String, Integer> strings = new HashMap<>();
+        out.write(VERSION);
+        for (int i = 0; i < count; i++) {
+            entry.reset();
+            int flags = (names[i] != null ? HAS_NAME : 0) | (codes[i] != null ? HAS_CODE : 0);
+            writeVarint(entry, (((argb[i] ^ 0xFF000000) & 0xFFFFFFFFL) << 2) | flags);
+            writeString(entry, names[i], strings);
+            writeString(entry, codes[i], strings);
+            if (out.size() + entry.size() > maxBytes) {
+                break;
+            }
+            out.write(entry.toByteArray(), 0, entry.size());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode colors into arrays, up to their length.
+     *
+     * @return The number of colors decoded
+     * @throws IllegalArgumentException if the data is corrupt or from an
+     * unknown version
+     */
+    static int decode(byte[] data, int[] argb, String[] names, String[] codes) {
+        if (data.length == 0 || data[0] != VERSION) {
+            throw new IllegalArgumentException("Unknown recent colors format "
+                    + (data.length == 0 ? "(empty)" : Integer.toString(data[0])));
+        }
+        Reader in = new Reader(data);
+        List<String> strings = new ArrayList<>();
+        int count = 0;
+        while (count < argb.length && in.pos < data.length) {
+            long value = in.varint();
+            argb[count] = (int) (value >>> 2) ^ 0xFF000000;
+            names[count] = (value & HAS_NAME) != 0 ? in.string(strings) : null;
+            codes[count] = (value & HAS_CODE) != 0 ? in.string(strings) : null;
+            count++;
+        }
+        return count;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String s, Map<String, Integer> strings) {
+        if (s == null) {
+            return;
+        }
+        Integer ix = strings.get(s);
+        if (ix != null) {
+            writeVarint(out, ix + 1);
+        } else {
+            strings.put(s, strings.size());
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, 0);
+            writeVarint(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static final class Reader {
+
+        private final byte[] data;
+        int pos = 1;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        long varint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = next();
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint at " + pos);
+        }
+
+        String string(List<String> strings) {
+            long ref = varint();
+            if (ref > 0) {
+                if (ref > strings.size()) {
+                    throw new IllegalArgumentException("Bad string reference "
+                            + ref + " at " + pos);
+                }
+                return strings.get((int) ref - 1);
+            }
+            long length = varint();
+            if (length > data.length - pos) {
+                throw new IllegalArgumentException("Truncated string at " + pos);
+            }
+            String result = new String(data, pos, (int) length, StandardCharsets.UTF_8);
+            pos += (int) length;
+            strings.add(result);
+            return result;
+        }
+
+        private byte next() {
+            if (pos >= data.length) {
+                throw new IllegalArgumentException("Truncated at " + pos);
+            }
+            return data[pos++];
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2010-2022 Tim Boudreau
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.java.dev.colorchooser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.UnaryOperator;
+
+/**
+ * A small memory-mapped file through which several JVMs share one list of
+ * recent colors. The file holds a header - magic number, format version, a
+ * sequence number incremented by every write, and the payload length -
+ * followed by the colors in RecentColorsCodec's format. Writers hold an
+ * exclusive FileChannel lock; readers can cheaply check the sequence number
+ * to see if anything changed since they last looked.
+ *
+ * @author Tim Boudreau
+ */
+final class SharedRecentColorsFile implements Closeable {
+
+    static final int MAGIC = 0x52434F4C;
+    static final int FORMAT = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int FORMAT_OFFSET = 4;
+    private static final int SEQUENCE_OFFSET = 8;
+    private static final int LENGTH_OFFSET = 16;
+    private static final int HEADER_SIZE = 20;
+    static final int DEFAULT_SIZE = 16384;
+    /**
+     * File locks are held on behalf of the whole JVM, and taking one twice
+     * throws, so threads - and instances open on the same file - take turns.
+     */
+    private static final Object JVM_LOCK = new Object();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Open or create a shared file.
+     *
+     * @param file The file
+     * @param size The size to create it with, if it does not exist
+     * @throws IOException If it cannot be opened, or is not a recent colors
+     * file - an existing file is never overwritten
+     */
+    SharedRecentColorsFile(Path file, int size) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            synchronized (JVM_LOCK) {
+                FileLock lock = channel.lock();
+                try {
+                    long existing = channel.size();
+                    if (existing > 0 && existing < HEADER_SIZE) {
+                        // Never overwrite a file we did not create
+                        throw new IOException(file + " is not a recent colors file"
+                                + " - only " + existing + " bytes long");
+                    }
+                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                            existing > 0 ? existing : size);
+                    if (existing == 0) {
+                        buffer.putInt(MAGIC_OFFSET, MAGIC);
+                        buffer.putInt(FORMAT_OFFSET, FORMAT);
+                        buffer.putLong(SEQUENCE_OFFSET, 0);
+                        buffer.putInt(LENGTH_OFFSET, 0);
+                    } else if (buffer.getInt(MAGIC_OFFSET) != MAGIC
+                            || buffer.getInt(FORMAT_OFFSET) != FORMAT) {
+                        throw new IOException(file + " is not a recent colors file");
+                    }
+                } finally {
+                    lock.release();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the sequence number, without locking. It is 0 if nothing has been
+     * written yet.
+     */
+    long sequence() {
+        return buffer.getLong(SEQUENCE_OFFSET);
+    }
+
+    /**
+     * Replace the contents, under an exclusive lock.
+     *
+     * @param update Given the current payload, which is empty if nothing has
+     * been written, returns the new one, or null to leave it unchanged
+     * @return The sequence number after the update
+     * @throws IOException If locking fails or the new payload does not fit
+     */
+    long update(UnaryOperator<byte[]> update) throws IOException {
+        synchronized (JVM_LOCK) {
+            FileLock lock = channel.lock();
+            try {
+                byte[] replacement = update.apply(payload());
+                long sequence = buffer.getLong(SEQUENCE_OFFSET);
+                if (replacement != null) {
+                    if (replacement.length > maxPayload()) {
+                        throw new IOException("Recent colors need " + replacement.length
+                                + " bytes but only " + maxPayload() + " are available");
+                    }
+                    for (int i = 0; i < replacement.length; i++) {
+                        buffer.put(HEADER_SIZE + i, replacement[i]);
+                    }
+                    buffer.putInt(LENGTH_OFFSET, replacement.length);
+                    // Written last, so readers never see a new sequence
+                    // number with an old payload
+                    buffer.putLong(SEQUENCE_OFFSET, ++sequence);
+                }
+                return sequence;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Read the contents under a shared lock.
+     *
+     * @param sequence Receives the sequence number the payload belongs to
+     * @return The payload, empty if nothing has been written
+     * @throws IOException If locking fails
+     */
+    byte[] read(long[] sequence) throws IOException {
+        synchronized (JVM_LOCK) {
+            FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+            try {
+                sequence[0] = buffer.getLong(SEQUENCE_OFFSET);
+                return payload();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    int maxPayload() {
+        return buffer.capacity() - HEADER_SIZE;
+    }
+
+    private byte[] payload() throws IOException {
+        int length = buffer.getInt(LENGTH_OFFSET);
+        if (length < 0 || length > maxPayload()) {
+            throw new IOException("Corrupt recent colors file - payload length " + length);
+        }
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = buffer.get(HEADER_SIZE + i);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
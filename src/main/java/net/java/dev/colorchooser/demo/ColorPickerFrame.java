@@ -53,21 +53,24 @@ import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import net.java.dev.colorchooser.ColorChooser;
+import net.java.dev.colorchooser.ColorFieldValidator;
+import net.java.dev.colorchooser.IncrementalColorParser;
 
 /**
  * A simple color calculator.
  *
  * @author  Tim Boudreau
  */
-public class ColorPickerFrame extends javax.swing.JFrame implements DocumentListener, PropertyChangeListener, ListSelectionListener {
+public class ColorPickerFrame extends javax.swing.JFrame implements PropertyChangeListener, ListSelectionListener {
     
     private static Preferences prefs;
     private static boolean cantGetPreferences = false;
     private final DefaultListModel lmdl = new DefaultListModel();
+    private final ColorFieldValidator hexValidator = new ColorFieldValidator(this::txtChange);
     /** Creates new form ColorPickerFrame */
     public ColorPickerFrame() {
         initComponents();
-        hexvalue.getDocument().addDocumentListener(this);
+        hexValidator.attach(hexvalue);
         colorChooser1.addPropertyChangeListener(this);
         colorChooser1.setFocusable(true);
         DL dl = new DL();
@@ -561,6 +564,11 @@ public class ColorPickerFrame extends javax.swing.JFrame implements DocumentList
             case '\t':
                 evt.setKeyChar(Character.toUpperCase(c));
                 break;
+            case '#':
+                if (hexvalue.getCaretPosition() != 0) {
+                    evt.consume();
+                }
+                break;
             default :
                 evt.consume();
         }
@@ -725,13 +733,22 @@ public class ColorPickerFrame extends javax.swing.JFrame implements DocumentList
     }
 
     private boolean changing = false;
-    private void txtChange() {
+    private void txtChange(ColorFieldValidator validator) {
         if (changing) {
             return;
         }
         fromTextChange = true;
         try {
-            setError(setColor (hexvalue.getText().trim()));
+            switch (validator.getState()) {
+                case VALID:
+                    setError(setColor(validator.getColor()));
+                    break;
+                case VALID_PREFIX:
+                    setError("Color must have 3, 6 or 8 hex digits");
+                    break;
+                default:
+                    setError("Not legal hexadecimal: " + hexvalue.getText());
+            }
         } finally {
             fromTextChange = false;
         }
@@ -804,36 +821,17 @@ public class ColorPickerFrame extends javax.swing.JFrame implements DocumentList
     private boolean fromTextChange = false;
     
     public String setColor (String s) {
-        if (s.length() != 6) {
-            return "Color must have 6 characters - '" + s + "' has " + s.length();
-        }
-        String r = s.substring(0, 2);
-        String g = s.substring(2, 4);
-        String b = s.substring(4);
-        try {
-            int rval = Integer.parseInt(r, 16);
-            int gval = Integer.parseInt(g, 16);
-            int bval = Integer.parseInt(b, 16);
-            Color c = new Color (rval, gval, bval);
-            setColor (c);
-        } catch (NumberFormatException nfe) {
-            return "Not legal hexadecimal: " + s;
-        } catch (IllegalArgumentException e) {
-            return e.getMessage();
+        s = s.trim();
+        IncrementalColorParser parser = new IncrementalColorParser();
+        switch (parser.feed(s, 0, s.length())) {
+            case VALID:
+                return setColor(parser.color());
+            case VALID_PREFIX:
+                return "Color must have 3, 6 or 8 hex digits - '" + s + "' has "
+                        + (s.startsWith("#") ? s.length() - 1 : s.length());
+            default:
+                return "Not legal hexadecimal: " + s;
         }
-        return " ";
-    }
-    
-    public void insertUpdate(DocumentEvent e) {
-        txtChange();
-    }
-
-    public void removeUpdate(DocumentEvent e) {
-        txtChange();
-    }
-
-    public void changedUpdate(DocumentEvent e) {
-        txtChange();
     }
     
     private void setError (String s) {
@@ -0,0 +1,103 @@
+package net.java.dev.colorchooser;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class ColorExpressionTest {
+
+    @Test
+    public void testConstantFolding() {
+        ColorExpression mix = ColorExpression.compile("mix(#336699, white, 20%)");
+        assertTrue(mix.isConstant());
+        // 0x33 * .2 + 0xFF * .8 = 214.2
+        assertEquals(0xFFD6E0EB, mix.evaluate());
+        assertEquals(0xFF808080, ColorExpression.compile("mix(black, white)").evaluate());
+        assertEquals(0x80FF0000, ColorExpression.compile("alpha(red, .5)").evaluate());
+        assertEquals(0x80FF0000, ColorExpression.compile("alpha(rgb(255, 0, 0), 50%)").evaluate());
+        assertEquals(0xFF800000, ColorExpression.compile("darken(red, 25%)").evaluate());
+        assertEquals(0xFFFF8080, ColorExpression.compile("lighten(red, 25)").evaluate());
+        assertEquals(0xFF000000, ColorExpression.compile("darken(hsl(0, 0%, 5%), 10%)").evaluate());
+    }
+
+    @Test
+    public void testVariables() {
+        ColorExpression e = ColorExpression.compile(
+                "mix(alpha(fg, .5), darken(accent, 10%), 50%)");
+        assertFalse(e.isConstant());
+        assertEquals(2, e.variableCount());
+        assertEquals(0, e.indexOf("fg"));
+        assertEquals(1, e.indexOf("accent"));
+        assertEquals(-1, e.indexOf("bg"));
+        int[] bindings = {0xFF000000, 0xFFFFFFFF};
+        // Lightness 100% - 10% of white is #e6e6e6
+        assertEquals(0xC0737373, e.evaluate(bindings));
+        bindings[1] = 0xFF000000;
+        assertEquals(0xC0000000, e.evaluate(bindings));
+        assertThrows(IllegalArgumentException.class, () -> e.evaluate(0));
+    }
+
+    @Test
+    public void testEvaluationDoesNotAllocate() {
+        ColorExpression e = ColorExpression.compile("lighten(darken(fg, 10%), 5%)");
+        int[] bindings = {0xFF336699};
+        int result = e.evaluate(bindings);
+        allocatedBytes();
+        long before = allocatedBytes();
+        for (int i = 0; i < 20000; i++) {
+            bindings[0] = 0xFF000000 | i * 997;
+            result ^= e.evaluate(bindings);
+        }
+        long allocated = allocatedBytes() - before;
+        // Well under a byte per evaluation - any per-call object is far more
+        assertTrue(allocated < 4096, allocated + " bytes allocated, result " + result);
+    }
+
+    @Test
+    public void testFunctionNamesIgnoreLocale() {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            assertEquals(ColorExpression.compile("mix(red, blue, 50%)").evaluate(),
+                    ColorExpression.compile("MIX(red, blue, 50%)").evaluate());
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void testWhitespaceBeforeArguments() {
+        assertEquals(0xFF010203, ColorExpression.compile("rgb (1,2,3)").evaluate());
+        assertEquals(0xFFFF0000, ColorExpression.compile("hsl\t(0, 100%, 50%)").evaluate());
+        assertEquals(ColorExpression.compile("darken(rgb(1,2,3), 10%)").evaluate(),
+                ColorExpression.compile("darken (rgb (1,2,3), 10%)").evaluate());
+        assertEquals(ColorExpression.compile("mix(red, blue)").evaluate(),
+                ColorExpression.compile("mix (red, blue)").evaluate());
+    }
+
+    @Test
+    public void testErrors() {
+        for (String bad : new String[]{"", "mix(red)", "mix(red, blue", "#12",
+            "darken(red, 200%)", "frob(red)", "red blue", "alpha(red, x)"}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> ColorExpression.compile(bad), bad);
+        }
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled());
+        return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
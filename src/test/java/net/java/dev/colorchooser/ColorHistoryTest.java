@@ -0,0 +1,97 @@
+package net.java.dev.colorchooser;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class ColorHistoryTest {
+
+    @Test
+    public void testRingAndRedo() {
+        ColorHistory h = new ColorHistory(4);
+        assertFalse(h.canUndo());
+        for (int i = 1; i <= 6; i++) {
+            h.record(i - 1, i, false, 0);
+        }
+        assertEquals(4, h.size());
+        assertEquals(5, h.undo());
+        assertEquals(4, h.undo());
+        assertEquals(3, h.undo());
+        assertFalse(h.canUndo());
+        assertThrows(IllegalStateException.class, h::undo);
+        assertEquals(4, h.redo());
+        h.record(4, 10, false, 0);
+        assertFalse(h.canRedo());
+        assertEquals(3, h.size());
+        assertEquals(4, h.undo());
+    }
+
+    @Test
+    public void testCoalescing() {
+        ColorHistory h = new ColorHistory(8);
+        h.record(0, 1, true, 1000);
+        h.record(1, 2, true, 1100);
+        h.record(2, 3, true, 1600);
+        // Too long after the last one
+        h.record(3, 4, true, 3000);
+        h.record(4, 5, false, 3100);
+        assertEquals(4, h.undo());
+        assertEquals(3, h.undo());
+        assertEquals(0, h.undo());
+        assertFalse(h.canUndo());
+    }
+
+    @Test
+    public void testChooser() {
+        ColorChooser cc = new ColorChooser(Color.RED);
+        assertFalse(cc.canUndo());
+        cc.setColor(Color.GREEN);
+        for (int i = 0; i < 50; i++) {
+            cc.adjustColor(0, 0, -0.01F);
+        }
+        Color adjusted = cc.getColor();
+        cc.setColor(Color.BLUE);
+        assertTrue(cc.undo());
+        assertEquals(adjusted, cc.getColor());
+        assertTrue(cc.undo());
+        assertEquals(Color.GREEN, cc.getColor());
+        assertTrue(cc.undo());
+        assertEquals(Color.RED, cc.getColor());
+        assertFalse(cc.undo());
+        assertTrue(cc.redo());
+        assertEquals(Color.GREEN, cc.getColor());
+    }
+
+    @Test
+    public void testSerializedChooser() throws Exception {
+        ColorChooser cc = new ColorChooser(Color.RED);
+        cc.setColor(Color.GREEN);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(cc);
+        }
+        ColorChooser copy;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (ColorChooser) in.readObject();
+        }
+        assertEquals(Color.GREEN, copy.getColor());
+        assertFalse(copy.canRedo());
+        copy.setColor(Color.BLUE);
+        assertTrue(copy.undo());
+        assertEquals(Color.GREEN, copy.getColor());
+        assertTrue(copy.undo());
+        assertEquals(Color.RED, copy.getColor());
+    }
+}
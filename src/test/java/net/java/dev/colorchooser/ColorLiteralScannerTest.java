@@ -0,0 +1,110 @@
+package net.java.dev.colorchooser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class ColorLiteralScannerTest {
+
+    private static final String TEXT = "body { color: #336699; background:#FFF }\n"
+            + "shadow=rgba(10, 20, 30, 40)\n"
+            + "ignored: abc#123 #12345 #1234567890 #fffg 1.5,2,3 4,5 6,7,8,9,10\n"
+            + "fg=255,0,0\n"
+            + "label.color=#00ff0080";
+
+    private static final String[] EXPECTED = {
+        "14:7:HEX_RGB:ff336699",
+        "34:4:HEX_RGB_TRUNC:fff0f0f0",
+        "48:20:CSS_RGB:ff0a141e",
+        "137:7:COMMA_DELIMITED_RGB:ffff0000",
+        "157:9:HEX_RGBA:8000ff00"
+    };
+
+    @Test
+    public void testReader() throws IOException {
+        List<String> found = new ArrayList<>();
+        long count = ColorLiteralScanner.scan(new StringReader(TEXT), collect(found));
+        assertEquals(EXPECTED.length, count);
+        assertEquals(Arrays.asList(EXPECTED), found);
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        Path file = Files.createTempFile("ColorLiteralScannerTest", ".css");
+        try {
+            Files.write(file, TEXT.getBytes(StandardCharsets.US_ASCII));
+            List<String> found = new ArrayList<>();
+            ColorLiteralScanner.scan(file, collect(found));
+            assertEquals(Arrays.asList(EXPECTED), found);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testDecimalBoundaries() throws IOException {
+        assertEquals(Arrays.asList("3:5:COMMA_DELIMITED_RGB:ff010203"),
+                scan("fg 1,2,3 here"));
+        assertEquals(Arrays.asList("3:5:COMMA_DELIMITED_RGB:ff010203"),
+                scan("fg 1,2,3"));
+        assertEquals(Arrays.asList("6:5:COMMA_DELIMITED_RGB:ff060708"),
+                scan("x 4,5 6,7,8"));
+        assertEquals(Arrays.asList("3:7:COMMA_DELIMITED_RGB:ffff0000"),
+                scan("fg=255,0,0."));
+        assertEquals(Arrays.asList("0:5:COMMA_DELIMITED_RGB:ff010203",
+                "8:5:COMMA_DELIMITED_RGB:ff040506"), scan("1,2,3.\t\t4,5,6.  "));
+        assertEquals(Arrays.asList(), scan("1,2,3.5 1,2,3x 1,2,3,4,5"));
+    }
+
+    @Test
+    public void testCssForms() throws IOException {
+        assertEquals(Arrays.asList("7:21:CSS_RGB:800a141e"),
+                scan("color: rgba(10, 20, 30, 0.5);"));
+        assertEquals(Arrays.asList("0:17:CSS_HSL:ffff0000",
+                "18:19:CSS_RGB:ff336699"),
+                scan("hsl(0, 100%, 50%) RGB(51 102 153 / 1)"));
+        assertEquals(Arrays.asList("6:3:NAMED:ffff0000",
+                "19:14:NAMED:ff6495ed"),
+                scan("fill: red; stroke: CornflowerBlue."));
+        // words that are hex or not names, names inside words, and color
+        // functions that do not parse, whose arguments are not literals
+        assertEquals(Arrays.asList(), scan("a bad cafe, reddish dark-red "
+                + "red-ish red(x) rgb(1,2) rgb(300, 0, 0, 0, 0"));
+    }
+
+    @Test
+    public void testNamesOnlyAsValues() throws IOException {
+        assertEquals(Arrays.asList(), scan("Got the tan line in gold and linen, "
+                + "orange too.\n"));
+        assertEquals(Arrays.asList(), scan("Color red = Color.RED;\n"
+                + "int gold = count + navy(2);\nif (tan) { orange(); }"));
+        assertEquals(Arrays.asList("5:3:NAMED:ffff0000", "16:4:NAMED:ffffd700",
+                "26:3:NAMED:ffd2b48c", "35:6:NAMED:ffffa500"),
+                scan("fg = red\naccent:gold\nx = \"tan\"; y('orange')"));
+        // Only alone inside the quotes
+        assertEquals(Arrays.asList(), scan("\"red wine\" 'the tan'"));
+    }
+
+    private static List<String> scan(String text) throws IOException {
+        List<String> found = new ArrayList<>();
+        ColorLiteralScanner.scan(new StringReader(text), collect(found));
+        return found;
+    }
+
+    private static ColorLiteralScanner.LiteralConsumer collect(List<String> into) {
+        return (offset, length, format, argb) -> {
+            into.add(offset + ":" + length + ":" + format + ":" + Integer.toHexString(argb));
+        };
+    }
+}
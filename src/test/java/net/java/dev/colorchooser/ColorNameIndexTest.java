@@ -0,0 +1,91 @@
+package net.java.dev.colorchooser;
+
+import java.awt.Color;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class ColorNameIndexTest {
+
+    @Test
+    public void testSvgNames() {
+        assertEquals("aqua", ColorNameIndex.svgName(0xFF00FFFF));
+        assertEquals("fuchsia", ColorNameIndex.svgName(0xFFFF00FF));
+        assertEquals("gray", ColorNameIndex.svgName(0xFF808080));
+        assertEquals("red", ColorNameIndex.svgName(0xFFFF0000));
+        assertNull(ColorNameIndex.svgName(0x80FF0000));
+        assertNull(ColorNameIndex.svgName(0xFF123456));
+        for (NamedColor c : PredefinedPalette.svgColors()) {
+            String name = ColorNameIndex.svgName(c.getRGB());
+            assertEquals(c.getRGB(), ColorParser.parse(name).getRGB(), name);
+        }
+    }
+
+    @Test
+    public void testPalettesLeaveSharedTablesUnsorted() {
+        NamedColor[] before = PredefinedPalette.svgColors().clone();
+        NamedColor[] system = PredefinedPalette.getSystemColors().clone();
+        PredefinedPalette.createDefaultPalettes();
+        assertArrayEquals(before, PredefinedPalette.svgColors());
+        assertArrayEquals(system, PredefinedPalette.getSystemColors());
+    }
+
+    @Test
+    public void testBuilderOrder() {
+        NamedColor[] first = {NamedColor.create(Color.RED, "zed"), NamedColor.create(Color.RED, "alpha")};
+        NamedColor[] second = {NamedColor.create(Color.RED, "aardvark"), NamedColor.create(Color.BLUE, "blue")};
+        ColorNameIndex ix = new ColorNameIndex.Builder().add(first, false).add(second, false).build();
+        assertEquals(2, ix.size());
+        assertEquals("alpha", ix.get(Color.RED.getRGB()));
+        assertEquals("blue", ix.get(Color.BLUE.getRGB()));
+        assertNull(ix.get(0));
+    }
+
+    @Test
+    public void testRegisteredPalette() {
+        Color odd = new Color(1, 2, 3);
+        assertNull(ColorChooser.getColorName(odd));
+        Palette pal = Palette.createPredefinedPalette("custom", new Color[]{odd}, new String[]{"nearlyBlack"});
+        assertEquals("nearlyBlack", ColorChooser.getColorName(odd));
+        ColorNameIndex merged = ColorNameIndex.display();
+        assertEquals("nearlyBlack", merged.get(odd.getRGB()));
+        assertSame(merged, ColorNameIndex.display());
+
+        Color other = new Color(1, 2, 4);
+        Palette second = Palette.createPredefinedPalette("other", new Color[]{other}, new String[]{"alsoBlack"});
+        assertEquals("alsoBlack", ColorChooser.getColorName(other));
+        assertNotSame(merged, ColorNameIndex.display());
+        merged = ColorNameIndex.display();
+
+        // What happens when a palette is collected
+        ColorNameIndex.unregister((PredefinedPalette) pal);
+        assertNull(ColorChooser.getColorName(odd));
+        assertEquals("alsoBlack", ColorChooser.getColorName(other));
+        assertNotSame(merged, ColorNameIndex.display());
+        ColorNameIndex.unregister((PredefinedPalette) second);
+        assertNull(ColorNameIndex.display().get(other.getRGB()));
+    }
+
+    @Test
+    public void testRegistrationIsWeak() throws InterruptedException {
+        Reference<Palette> ref = new WeakReference<>(Palette.createPredefinedPalette(
+                "custom", new Color[]{new Color(1, 2, 5)}, new String[]{"gone"}));
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        // System.gc() is only a hint
+        assumeTrue(ref.get() == null);
+        assertNull(ColorChooser.getColorName(new Color(1, 2, 5)));
+    }
+}
@@ -6,10 +6,18 @@
 package net.java.dev.colorchooser;
 
 import java.awt.Color;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import javax.swing.text.Segment;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -21,8 +29,49 @@ public class ColorParserTest {
     @Test
     public void testColorParsing() {
         for (ColorParser cp : ColorParser.values()) {
-            testOne(cp);
+            if (cp != ColorParser.NAMED) {
+                testOne(cp);
+            }
+        }
+    }
+
+    @Test
+    public void testNamedColors() {
+        for (NamedColor c : PredefinedPalette.svgColors()) {
+            String name = ColorParser.NAMED.toString(c);
+            Color got = ColorParser.NAMED.doParse(name);
+            assertNotNull(got, name);
+            assertColorsEqual(c, got, "Parsing '" + name + "'");
+            assertColorsEqual(c, ColorParser.parse(c.getName().toUpperCase()),
+                    "Upper case " + name);
+        }
+        assertEquals("cornflowerblue", ColorParser.NAMED.toString(new Color(100, 149, 237)));
+        assertEquals("#123", ColorParser.NAMED.toString(new Color(0x10, 0x20, 0x30)));
+        assertParses("transparent", 0, 0, 0, 0);
+        assertParses("Cyan", 0, 255, 255, 255);
+        for (String bad : new String[]{"cornflower", "cornflowerbluex", "red2", "re d"}) {
+            assertNull(ColorParser.parse(bad), bad);
+        }
+    }
+
+    @Test
+    public void testCssFunctions() {
+        assertParses("rgb(10 20 30 / 50%)", 10, 20, 30, 128);
+        assertParses("rgb(10, 20, 30)", 10, 20, 30, 255);
+        assertParses("RGBA(10,20,30,0.5)", 10, 20, 30, 128);
+        assertParses("rgb(100% 0% 50%)", 255, 0, 128, 255);
+        assertParses("rgb(300 -5 1e2)", 255, 0, 100, 255);
+        assertParses("hsl(120 100% 25%)", 0, 128, 0, 255);
+        assertParses("hsla(0.5turn, 100%, 50%, .25)", 0, 255, 255, 64);
+        assertParses("hsl(-120deg 100% 50% / 1)", 0, 0, 255, 255);
+        assertParses("hsl(3.14159rad 100% 50%)", 0, 255, 255, 255);
+        for (String bad : new String[]{"rgb(10 20)", "rgb(10, 20 30)", "rgb(10 20 30",
+            "rgb(10 20 30) ", "rgb(10,20,30/1)", "rgb(10 20 30, 1)", "rgb(10deg 20 30)",
+            "hsl(10% 20% 30%)", "rgb(a b c)", "rgb()", "rgbx(1 2 3)", "rgb(1020 30)"}) {
+            assertNull(ColorParser.parse(bad), "Should not parse '" + bad + "'");
         }
+        assertEquals("rgba(10, 20, 30, 0.502)", ColorParser.CSS_RGB.toString(new Color(10, 20, 30, 128)));
+        assertEquals("hsl(120, 100%, 25.1%)", ColorParser.CSS_HSL.toString(new Color(0, 128, 0)));
     }
 
     @Test
@@ -31,6 +80,91 @@ public class ColorParserTest {
         assertEquals("#000", str);
     }
 
+    @Test
+    public void testEdgeCases() {
+        assertParses("#fff\n", 240, 240, 240, 255);
+        assertParses("abc", 160, 176, 192, 255);
+        assertParses("#00ff0080\r\n", 0, 255, 0, 128);
+        assertParses("1 , 2,\t3  \n", 1, 2, 3, 255);
+        assertParses("10,20,30,40", 10, 20, 30, 40);
+        assertParses("001,2,3", 1, 2, 3, 255);
+        for (String bad : new String[]{"", "#", " #fff", "#fff ", "#ffff",
+            "#fffffff", "#fffffffff", "#ggg", "#fff\n\n", "1,2", "1,2,3,4,5",
+            "1,2,", " 1,2,3", "1,2,0003", "#1,2,3", "1,a,3", "300,0,0",
+            "1,2,3 x"}) {
+            assertNull(ColorParser.parse(bad), "Should not parse '" + bad + "'");
+            assertFalse(ColorParser.canParse(bad), "Should not parse '" + bad + "'");
+        }
+        assertNull(ColorParser.parse(null));
+    }
+
+    @Test
+    public void testAppendTo() throws IOException {
+        Color c = new Color(10, 200, 48, 160);
+        for (ColorParser p : ColorParser.values()) {
+            StringWriter w = new StringWriter();
+            p.appendTo(w, c.getRGB()).append('|');
+            assertEquals(p.toString(c) + '|', w.toString(), p.name());
+            assertEquals("x" + p.toString(c), p.appendTo(new StringBuilder("x"),
+                    c.getRGB()).toString(), p.name());
+        }
+        assertEquals("#0a0", ColorParser.appendMinimalTo(new StringBuilder(), 0xFF00A000).toString());
+    }
+
+    @Test
+    public void testHslFormattingDoesNotAllocate() {
+        StringBuilder sb = new StringBuilder(64);
+        ColorParser.CSS_HSL.appendTo(sb, 0xFF336699);
+        assertEquals("hsl(210, 50%, 40%)", sb.toString());
+        allocatedBytes();
+        long before = allocatedBytes();
+        for (int i = 0; i < 20000; i++) {
+            sb.setLength(0);
+            ColorParser.CSS_HSL.appendTo(sb, 0xFF000000 | i * 997);
+        }
+        long allocated = allocatedBytes() - before;
+        assertTrue(allocated < 4096, allocated + " bytes allocated formatting " + sb);
+    }
+
+    @Test
+    public void testParseArgb() {
+        long result = ColorParser.parseArgb("#336699cc");
+        assertTrue(ColorParser.isMatch(result));
+        assertEquals(0xCC336699, ColorParser.argb(result));
+        assertEquals(ColorParser.HEX_RGBA, ColorParser.format(result));
+        result = ColorParser.parseArgb("x 1, 2, 3 x".toCharArray(), 2, 9);
+        assertEquals(0xFF010203, ColorParser.argb(result));
+        assertEquals(ColorParser.COMMA_DELIMITED_RGB, ColorParser.format(result));
+        assertEquals(ColorParser.NAMED, ColorParser.format(ColorParser.parseArgb("white")));
+        assertEquals(ColorParser.NO_MATCH, ColorParser.parseArgb("#ggg"));
+        assertEquals(ColorParser.NO_MATCH, ColorParser.parseArgb(null));
+        assertFalse(ColorParser.isMatch(ColorParser.NO_MATCH));
+        assertThrows(IllegalArgumentException.class, () -> ColorParser.format(ColorParser.NO_MATCH));
+    }
+
+    @Test
+    public void testRanges() {
+        String text = "color: #336699; rgba 10, 20, 30, 40";
+        int hex = text.indexOf('#');
+        assertColorsEqual(new Color(0x33, 0x66, 0x99),
+                ColorParser.parse(text, hex, hex + 7), "Hex range");
+        char[] chars = text.toCharArray();
+        assertColorsEqual(new Color(10, 20, 30, 40),
+                ColorParser.parse(chars, text.indexOf("10"), chars.length), "Comma range");
+        assertTrue(ColorParser.canParse(new Segment(chars, hex, 7), 0, 7));
+        assertNull(ColorParser.parse(text, 0, hex + 7));
+        assertNull(ColorParser.parse(chars, hex, hex));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> ColorParser.parse(text, hex, text.length() + 1));
+    }
+
+    private void assertParses(String text, int r, int g, int b, int a) {
+        assertTrue(ColorParser.canParse(text), text);
+        Color got = ColorParser.parse(text);
+        assertNotNull(got, text);
+        assertColorsEqual(new Color(r, g, b, a), got, "Parsing '" + text + "'");
+    }
+
     private void testOne(ColorParser p) {
         for (int r = 0; r <= 255; r += 15) {
             for (int g = 0; g <= 255; g += 15) {
@@ -107,4 +241,12 @@ public class ColorParserTest {
         }
     }
 
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled());
+        return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
 }
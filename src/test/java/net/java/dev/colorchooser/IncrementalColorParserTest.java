@@ -0,0 +1,101 @@
+package net.java.dev.colorchooser;
+
+import static net.java.dev.colorchooser.IncrementalColorParser.State.INVALID;
+import static net.java.dev.colorchooser.IncrementalColorParser.State.VALID;
+import static net.java.dev.colorchooser.IncrementalColorParser.State.VALID_PREFIX;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class IncrementalColorParserTest {
+
+    @Test
+    public void testTyping() {
+        IncrementalColorParser p = new IncrementalColorParser();
+        assertEquals(VALID_PREFIX, p.state());
+        String text = "#FF00aa80";
+        IncrementalColorParser.State[] expected = {VALID_PREFIX, VALID_PREFIX,
+            VALID_PREFIX, VALID, VALID_PREFIX, VALID_PREFIX, VALID,
+            VALID_PREFIX, VALID};
+        for (int i = 0; i < text.length(); i++) {
+            assertEquals(expected[i], p.feed(text.charAt(i)), text.substring(0, i + 1));
+            if (p.state() == VALID) {
+                assertEquals(ColorParser.parseArgb(text.substring(0, i + 1)),
+                        (1L + p.format().ordinal()) << 32 | (p.argb() & 0xFFFFFFFFL));
+            }
+        }
+        assertEquals(0x80FF00AA, p.argb());
+        assertEquals(INVALID, p.feed('0'));
+        assertNull(p.color());
+        for (int i = text.length() - 1; i >= 0; i--) {
+            assertEquals(i == text.length() - 1 ? VALID : expected[i], p.deleteLast());
+        }
+        assertEquals(VALID_PREFIX, p.deleteLast());
+        assertEquals(0, p.length());
+        assertEquals(INVALID, p.feed("a#b", 0, 3));
+        assertEquals(INVALID, p.deleteLast());
+        assertEquals(VALID_PREFIX, p.deleteLast());
+        assertEquals(VALID, p.feed("bc", 0, 2));
+        assertEquals(0xFFA0B0C0, p.argb());
+    }
+
+    @Test
+    public void testSurroundingWhitespace() {
+        IncrementalColorParser p = new IncrementalColorParser();
+        assertEquals(VALID, p.feed(" 336699", 0, 7));
+        assertEquals(0xFF336699, p.argb());
+        assertEquals(VALID, p.feed("\t ", 0, 2));
+        assertEquals(0xFF336699, p.argb());
+        assertEquals(INVALID, p.feed('0'));
+        assertEquals(VALID, p.deleteLast());
+        p.reset();
+        assertEquals(VALID, p.feed("  #abc  ", 0, 8));
+        assertEquals(0xFFA0B0C0, p.argb());
+        p.reset();
+        assertEquals(VALID_PREFIX, p.feed("  #33", 0, 5));
+        assertEquals(INVALID, p.feed(' '));
+        assertEquals(VALID_PREFIX, p.deleteLast());
+        assertEquals(INVALID, p.feed("3 6", 0, 3));
+        for (int i = 0; i < 5; i++) {
+            p.deleteLast();
+        }
+        assertEquals(VALID, p.feed("abc", 0, 3));
+        assertEquals(0xFFA0B0C0, p.argb());
+        while (p.length() > 0) {
+            p.deleteLast();
+        }
+        assertEquals(VALID, p.feed("123", 0, 3));
+    }
+
+    @Test
+    public void testValidator() throws BadLocationException {
+        PlainDocument doc = new PlainDocument();
+        int[] calls = new int[1];
+        ColorFieldValidator v = new ColorFieldValidator(validator -> calls[0]++);
+        v.attach(doc);
+        doc.insertString(0, "12345", null);
+        assertEquals(VALID_PREFIX, v.getState());
+        doc.insertString(5, "6", null);
+        assertEquals(ColorParser.HEX_RGB, v.getFormat());
+        assertEquals(0x123456, v.getColor().getRGB() & 0xFFFFFF);
+        doc.insertString(2, "x", null);
+        assertEquals(INVALID, v.getState());
+        doc.remove(2, 1);
+        assertEquals(VALID, v.getState());
+        doc.remove(3, 3);
+        assertEquals(ColorParser.HEX_RGB_TRUNC, v.getFormat());
+        assertEquals(5, calls[0]);
+        doc.replace(0, doc.getLength(), " 336699 ", null);
+        assertEquals(0x336699, v.getColor().getRGB() & 0xFFFFFF);
+        assertEquals(7, calls[0]);
+        v.detach();
+        doc.insertString(0, "#", null);
+        assertEquals(7, calls[0]);
+    }
+}
@@ -0,0 +1,47 @@
+package net.java.dev.colorchooser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class NamedColorCacheTest {
+
+    @Test
+    public void testLookupAndReplace() {
+        NamedColorCache cache = new NamedColorCache(16);
+        NamedColor red = new PredefinedPalette.BasicNamedColor("red", 255, 0, 0);
+        assertNull(cache.get(red.getRGB()));
+        cache.put(red);
+        assertSame(red, cache.get(0xFFFF0000));
+        assertNull(cache.get(0x80FF0000));
+        NamedColor scarlet = new PredefinedPalette.BasicNamedColor("scarlet", 255, 0, 0);
+        cache.put(scarlet);
+        assertSame(scarlet, cache.get(0xFFFF0000));
+    }
+
+    @Test
+    public void testBounded() {
+        NamedColorCache cache = new NamedColorCache(16);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(new PredefinedPalette.BasicNamedColor("c" + i, i & 0xFF, i >> 8, 0));
+        }
+        int found = 0;
+        for (int i = 0; i < 1000; i++) {
+            NamedColor c = cache.get(0xFF000000 | (i & 0xFF) << 16 | (i >> 8) << 8);
+            if (c != null) {
+                assertEquals("c" + i, c.getName());
+                found++;
+            }
+        }
+        assertTrue(found > 0 && found <= cache.capacity(), "Found " + found);
+        // The most recent registration is always found
+        assertEquals("c999", cache.get(0xFF000000 | (999 & 0xFF) << 16 | (999 >> 8) << 8)
+                .getName());
+    }
+}
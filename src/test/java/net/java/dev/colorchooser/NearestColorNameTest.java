@@ -0,0 +1,46 @@
+package net.java.dev.colorchooser;
+
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class NearestColorNameTest {
+
+    @Test
+    public void testAgainstLinearScan() {
+        NearestColorName nearest = NearestColorName.getDefault();
+        assertTrue(nearest.size() > 140);
+        Random random = new Random(3);
+        float[] q = new float[3];
+        for (int i = 0; i < 500; i++) {
+            int rgb = 0xFF000000 | random.nextInt(0x1000000);
+            NearestColorName.toOkLab(rgb, q, 0);
+            float best = Float.MAX_VALUE;
+            for (int node = 0; node < nearest.size(); node++) {
+                best = Math.min(best, nearest.distanceSquared(q[0], q[1], q[2], node));
+            }
+            long match = nearest.match(rgb);
+            assertEquals(best, nearest.distanceSquared(q[0], q[1], q[2],
+                    NearestColorName.node(match)), 1e-9f);
+            assertEquals(Math.sqrt(best) * 100, NearestColorName.deltaE(match), 1e-9);
+        }
+    }
+
+    @Test
+    public void testNames() {
+        NearestColorName nearest = NearestColorName.getDefault();
+        long match = nearest.match(0xFF6395EC);
+        assertEquals(0xFF6495ED, nearest.rgbAt(NearestColorName.node(match)));
+        assertTrue(NearestColorName.deltaE(match) < 1);
+        match = nearest.match(0xFFFF0000);
+        assertEquals(0xFFFF0000, nearest.rgbAt(NearestColorName.node(match)));
+        assertEquals(0, NearestColorName.deltaE(match), 1e-9);
+        assertSame(nearest, NearestColorName.getDefault());
+    }
+}
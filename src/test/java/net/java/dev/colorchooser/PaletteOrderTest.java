@@ -0,0 +1,87 @@
+package net.java.dev.colorchooser;
+
+import java.awt.Color;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class PaletteOrderTest {
+
+    @Test
+    public void testHilbertCurveIsContinuous() {
+        // An aligned sub-cube is a contiguous stretch of the curve
+        int side = 16;
+        int[] byIndex = new int[side * side * side];
+        boolean[] seen = new boolean[byIndex.length];
+        for (int r = 0; r < side; r++) {
+            for (int g = 0; g < side; g++) {
+                for (int b = 0; b < side; b++) {
+                    int rgb = (r << 16) | (g << 8) | b;
+                    int ix = PaletteOrder.hilbertIndex(rgb);
+                    assertTrue(ix < byIndex.length && !seen[ix], Integer.toHexString(rgb));
+                    seen[ix] = true;
+                    byIndex[ix] = rgb;
+                }
+            }
+        }
+        for (int i = 1; i < byIndex.length; i++) {
+            int a = byIndex[i - 1];
+            int b = byIndex[i];
+            int steps = Math.abs(((a >> 16) & 0xFF) - ((b >> 16) & 0xFF))
+                    + Math.abs(((a >> 8) & 0xFF) - ((b >> 8) & 0xFF))
+                    + Math.abs((a & 0xFF) - (b & 0xFF));
+            assertEquals(1, steps, Integer.toHexString(a) + " -> " + Integer.toHexString(b));
+        }
+    }
+
+    @Test
+    public void testOrders() {
+        int[] rgb = {0x0000FF, 0x808080, 0xFF0000, 0xFFFFFF, 0x00FF00, 0x800000, 0x000000};
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6}, PaletteOrder.ORIGINAL.order(rgb));
+        assertArrayEquals(new int[]{3, 4, 1, 2, 5, 0, 6}, PaletteOrder.LUMINANCE.order(rgb));
+        // equal averages keep their original order
+        assertArrayEquals(new int[]{3, 1, 0, 2, 4, 5, 6}, PaletteOrder.BRIGHTNESS.order(rgb));
+        // grays, then red, dark red, green, blue
+        assertArrayEquals(new int[]{3, 1, 6, 2, 5, 4, 0}, PaletteOrder.HUE.order(rgb));
+
+        NamedColor[] colors = new NamedColor[rgb.length];
+        for (int i = 0; i < rgb.length; i++) {
+            colors[i] = NamedColor.create(new Color(rgb[i]), "c" + i);
+        }
+        NamedColor[] sorted = PaletteOrder.HUE.sort(colors.clone());
+        int[] order = PaletteOrder.HUE.order(rgb);
+        for (int i = 0; i < order.length; i++) {
+            assertEquals("c" + order[i], sorted[i].getName());
+        }
+
+        Palette pal = Palette.createPredefinedPalette("ordered", rgb,
+                new String[rgb.length], PaletteOrder.LUMINANCE);
+        assertEquals(0xFFFFFFFF, pal.getColorAt(1, 1).getRGB());
+    }
+
+    @Test
+    public void testLargePaletteSortsQuickly() {
+        int[] rgb = new int[200000];
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] = i * 83;
+        }
+        for (PaletteOrder order : PaletteOrder.values()) {
+            long start = System.nanoTime();
+            int[] positions = order.order(rgb);
+            long millis = (System.nanoTime() - start) / 1000000;
+            assertTrue(millis < 2000, order + " took " + millis + "ms");
+            boolean[] seen = new boolean[rgb.length];
+            for (int p : positions) {
+                seen[p] = true;
+            }
+            for (boolean b : seen) {
+                assertTrue(b);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package net.java.dev.colorchooser;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Locale;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class PredefinedPaletteTest {
+
+    @Test
+    public void testVirtualPalette() {
+        int count = 20000;
+        NamedColor[] colors = new NamedColor[count];
+        for (int i = 0; i < count; i++) {
+            colors[i] = NamedColor.create(new Color(i * 0xFFFFFF / count), "c" + i);
+        }
+        // Sorts the array in place, so indices below are into the sorted order
+        PredefinedPalette pal = new PredefinedPalette("big", colors);
+        assertTrue(pal.isVirtual());
+        Dimension size = pal.getSize();
+        assertTrue(size.width < 500 && size.height < 400, size.toString());
+
+        Color first = pal.getColorAt(1, 1);
+        assertSame(colors[0], first);
+        assertSame(colors[PredefinedPalette.VIRTUAL_COLUMNS + 1], pal.getColorAt(14, 14));
+        assertNull(pal.getColorAt(size.width - 1, 1));
+        assertFalse(pal.scrollBy(-1));
+        assertTrue(pal.scrollBy(10));
+        assertSame(colors[10 * PredefinedPalette.VIRTUAL_COLUMNS], pal.getColorAt(1, 1));
+        assertTrue(pal.scrollBy(Integer.MAX_VALUE / 2));
+        int lastRow = (count + PredefinedPalette.VIRTUAL_COLUMNS - 1) / PredefinedPalette.VIRTUAL_COLUMNS - 1;
+        int y = (PredefinedPalette.VIRTUAL_ROWS - 1) * 13 + 2;
+        assertSame(colors[lastRow * PredefinedPalette.VIRTUAL_COLUMNS], pal.getColorAt(1, y));
+
+        BufferedImage img = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        pal.paintTo(g);
+        pal.scrollBy(-3);
+        pal.paintTo(g);
+        g.dispose();
+        for (int row = 0; row < PredefinedPalette.VIRTUAL_ROWS; row++) {
+            for (int col = 0; col < PredefinedPalette.VIRTUAL_COLUMNS; col++) {
+                int px = col * 13 + 5;
+                int py = row * 13 + 5;
+                Color c = pal.getColorAt(px, py);
+                assertEquals(c == null ? Color.BLACK.getRGB() : c.getRGB(), img.getRGB(px, py));
+            }
+        }
+    }
+
+    @Test
+    public void testTablePalette() {
+        int count = 100000;
+        int[] rgb = new int[count];
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            rgb[i] = 0x123400 + i;
+            names[i] = i % 2 == 0 ? "shade " + (i % 7) : null;
+        }
+        Palette pal = Palette.createPredefinedPalette("table", rgb, names);
+        assertTrue(pal instanceof PredefinedPalette);
+        assertTrue(((PredefinedPalette) pal).isVirtual());
+        // Kept in the order given
+        Color first = pal.getColorAt(1, 1);
+        assertEquals(0xFF123400, first.getRGB());
+        assertEquals("shade 0", pal.getNameAt(1, 1));
+        assertEquals("shade 0", ((NamedColor) first).getName());
+        assertNull(pal.getNameAt(14, 1));
+        assertEquals(0xFF123401, pal.getColorAt(14, 1).getRGB());
+        assertEquals("shade 2", pal.getNameAt(27, 1));
+        // Registered for name lookups
+        assertEquals("shade 0", PredefinedPalette.getColorName(new Color(0x123400 + 14)));
+        // ...while it is reachable
+        assertTrue(pal.getSize().width > 0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> Palette.createPredefinedPalette("bad", new int[2], new String[1]));
+    }
+
+    @Test
+    public void testDisplayNames() {
+        NamedColor[] colors = {
+            new PredefinedPalette.BasicNamedColor("aliceblue", 240, 248, 255),
+            new PredefinedPalette.BasicNamedColor("black", 0, 0, 0)
+        };
+        PredefinedPalette pal = new PredefinedPalette("names", colors);
+        assertEquals("Alice blue", pal.getNameAt(1, 1));
+        int second = PredefinedPalette.swatchSize(2) + 2;
+        assertEquals("Black", pal.getNameAt(second, 1));
+        colors[1] = NamedColor.create(Color.BLACK, "ink");
+        assertEquals("ink", pal.getNameAt(second, 1));
+        Color aliceBlue = new Color(240, 248, 255);
+        assertEquals("Alice blue", ColorChooser.getColorName(aliceBlue));
+        ColorNameIndex names = ColorNameIndex.display();
+        Locale old = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.FRENCH);
+            assertEquals("Alice blue", pal.getNameAt(1, 1));
+            // The names used by getColorName and the nearest-name lookup
+            // are resolved again in the new locale too
+            assertNotSame(names, ColorNameIndex.display());
+            assertEquals("Alice blue", ColorChooser.getColorName(aliceBlue));
+            assertEquals("Alice blue", ColorNameIndex.display().get(aliceBlue.getRGB()));
+        } finally {
+            Locale.setDefault(old);
+        }
+        assertEquals("Recent colors", new RecentColors(4, null).getDisplayName());
+    }
+}
@@ -0,0 +1,401 @@
+package net.java.dev.colorchooser;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.AbstractPreferences;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class RecentColorsTest {
+
+    private Preferences prefs;
+
+    @BeforeEach
+    public void createPreferences() {
+        prefs = new MemoryPreferences().node("test");
+    }
+
+    @AfterEach
+    public void removePreferences() throws BackingStoreException {
+        if (prefs.nodeExists("")) {
+            prefs.removeNode();
+        }
+    }
+
+    @Test
+    public void testRing() {
+        RecentColors rc = new RecentColors(3, null);
+        rc.add(Color.RED);
+        rc.add(Color.GREEN);
+        rc.add(Color.BLUE);
+        rc.add(new Color(255, 0, 0, 128));
+        assertEquals(3, rc.size());
+        rc.add(Color.YELLOW);
+        assertEquals(3, rc.size());
+        assertEquals(Color.YELLOW.getRGB(), rc.rgbAt(0));
+        assertEquals(Color.GREEN.getRGB(), rc.rgbAt(2));
+        assertEquals(Color.YELLOW, rc.getColorAt(2, 2));
+    }
+
+    @Test
+    public void testAgainstModel() {
+        int capacity = 500;
+        RecentColors rc = new RecentColors(capacity, null);
+        Deque<Integer> model = new ArrayDeque<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+            int value = 0xFF000000 | random.nextInt(2000);
+            rc.add(new Color(value));
+            if (!model.contains(value)) {
+                model.addFirst(value);
+                if (model.size() > capacity) {
+                    model.removeLast();
+                }
+            }
+        }
+        assertEquals(model.size(), rc.size());
+        Iterator<Integer> it = model.iterator();
+        for (int i = 0; i < rc.size(); i++) {
+            assertEquals((int) it.next(), rc.rgbAt(i));
+        }
+    }
+
+    @Test
+    public void testConcurrentWritersAndSnapshots() throws Exception {
+        RecentColors rc = new RecentColors(5000, null);
+        List<Long> versions = new CopyOnWriteArrayList<>();
+        rc.addChangeListener(e -> versions.add(rc.version()));
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            int base = t * 1000;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    rc.add(new Color(base + i));
+                    // Every writer also re-adds a shared color
+                    rc.add(Color.WHITE);
+                }
+            });
+            writers[t].start();
+        }
+        long lastVersion = 0;
+        while (writers[0].isAlive() || writers[3].isAlive()) {
+            RecentColors.Snapshot snap = rc.snapshot();
+            assertTrue(snap.version >= lastVersion);
+            lastVersion = snap.version;
+            for (int i = 0; i < snap.size(); i++) {
+                assertEquals(snap.rgbAt(i), snap.colorAt(i).getRGB());
+            }
+        }
+        for (Thread t : writers) {
+            t.join();
+        }
+        assertEquals(4001, rc.size());
+        EventQueue.invokeAndWait(() -> {
+        });
+        assertFalse(versions.isEmpty());
+        assertEquals(rc.version(), (long) versions.get(versions.size() - 1));
+    }
+
+    @Test
+    public void testIncrementalPainting() {
+        for (int scale = 1; scale <= 2; scale++) {
+            RecentColors rc = new RecentColors(30, null);
+            Random random = new Random(scale);
+            for (int step : new int[]{0, 1, 1, 5, 7, 9, 1, 29, 3, 30, 31}) {
+                for (int i = 0; i < step; i++) {
+                    rc.add(new Color(random.nextInt(0x1000000)));
+                }
+                RecentColors fresh = new RecentColors(30, null);
+                for (int i = rc.size() - 1; i >= 0; i--) {
+                    fresh.add(new Color(rc.rgbAt(i)));
+                }
+                assertArrayEquals(paint(fresh, scale), paint(rc, scale), "step " + step);
+            }
+        }
+    }
+
+    private static int[] paint(RecentColors rc, int scale) {
+        Dimension d = rc.getSize();
+        BufferedImage img = new BufferedImage(d.width * scale, d.height * scale,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.scale(scale, scale);
+        rc.paintTo(g);
+        g.dispose();
+        return img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+    }
+
+    @Test
+    public void testPersistence() throws BackingStoreException {
+        RecentColors rc = new RecentColors(4, prefs);
+        for (int i = 0; i < 6; i++) {
+            rc.add(new Color(i, i, i));
+        }
+        assertNull(prefs.getByteArray(RecentColors.KEY, null));
+        rc.flush();
+        RecentColors loaded = new RecentColors(4, prefs);
+        loaded.loadFromPrefs();
+        assertEquals(4, loaded.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(rc.rgbAt(i), loaded.rgbAt(i));
+        }
+    }
+
+    @Test
+    public void testMigration() throws BackingStoreException {
+        prefs.put(RecentColors.LEGACY_KEY, "red^$255^$0^$0^$new java.awt.Color(255,0,0)!*"
+                + "null^$1^$2^$3^$new java.awt.Color(1,2,3)!*"
+                + "bad^$1^$2!*"
+                + "null^$4^$5^$6^$x!*");
+        RecentColors rc = new RecentColors(8, prefs);
+        List<Exception> failures = new CopyOnWriteArrayList<>();
+        rc.addPersistenceListener((colors, e) -> failures.add(e));
+        rc.loadFromPrefs();
+        // The malformed entry is skipped, not the whole list
+        assertEquals(1, failures.size());
+        assertEquals(3, rc.size());
+        assertEquals(0xFFFF0000, rc.rgbAt(0));
+        assertEquals(0xFF040506, rc.rgbAt(2));
+        rc.flush();
+        assertNull(prefs.get(RecentColors.LEGACY_KEY, null));
+        byte[] data = prefs.getByteArray(RecentColors.KEY, null);
+        assertTrue(data.length < 60, "Binary format is " + data.length + " bytes");
+
+        RecentColors loaded = new RecentColors(8, prefs);
+        loaded.loadFromPrefs();
+        assertEquals(3, loaded.size());
+        assertEquals(0xFF010203, loaded.rgbAt(1));
+        assertEquals("red", RecentColors.findNamedColor(Color.RED).getDisplayName());
+        assertEquals("new java.awt.Color(255,0,0)", loaded.getColorAt(2, 2).toString());
+    }
+
+    @Test
+    public void testDelayedSaveAndFailures() throws Exception {
+        ManualWriter writer = new ManualWriter();
+        long[] now = {0};
+        try {
+            RecentColors rc = new RecentColors(4, prefs, writer, () -> now[0]);
+            List<Exception> failures = new CopyOnWriteArrayList<>();
+            rc.addPersistenceListener((colors, e) -> failures.add(e));
+            rc.add(Color.RED);
+            now[0] += TimeUnit.MILLISECONDS.toNanos(300);
+            rc.add(Color.BLUE);
+            // Each change put the save back, but not past MAX_SAVE_DELAY
+            now[0] += TimeUnit.MILLISECONDS.toNanos(RecentColors.MAX_SAVE_DELAY - 500);
+            rc.add(Color.GREEN);
+            now[0] += TimeUnit.MILLISECONDS.toNanos(1000);
+            rc.add(Color.YELLOW);
+            assertEquals(Arrays.asList(RecentColors.SAVE_DELAY, RecentColors.SAVE_DELAY,
+                    200L, 0L), writer.delays);
+            assertNull(prefs.getByteArray(RecentColors.KEY, null));
+            writer.runLast();
+            RecentColors loaded = new RecentColors(4, prefs);
+            loaded.loadFromPrefs();
+            assertEquals(4, loaded.size());
+            assertEquals(Color.YELLOW.getRGB(), loaded.rgbAt(0));
+
+            // A save starts a new delay
+            rc.add(Color.CYAN);
+            assertEquals(RecentColors.SAVE_DELAY, (long) writer.delays.get(4));
+
+            prefs.removeNode();
+            rc.add(Color.MAGENTA);
+            rc.flush();
+            assertFalse(failures.isEmpty());
+            assertTrue(failures.get(0) instanceof IllegalStateException);
+        } finally {
+            writer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPublicPersistenceListener() {
+        List<Exception> failures = new CopyOnWriteArrayList<>();
+        ColorChooser.PersistenceListener l = failures::add;
+        assertFalse(ColorChooser.recentColorsFailed(new IOException()));
+        ColorChooser.addPersistenceListener(l);
+        try {
+            assertTrue(ColorChooser.recentColorsFailed(new IOException()));
+            assertEquals(1, failures.size());
+        } finally {
+            ColorChooser.removePersistenceListener(l);
+        }
+    }
+
+    @Test
+    public void testSharedFile() throws Exception {
+        Path path = Files.createTempFile("recent", ".colors");
+        Files.delete(path);
+        // Two instances on separate mappings stand in for two processes
+        try (SharedRecentColorsFile fileA = new SharedRecentColorsFile(path, 4096);
+                SharedRecentColorsFile fileB = new SharedRecentColorsFile(path, 4096)) {
+            RecentColors a = new RecentColors(4, null);
+            a.add(Color.RED);
+            a.share(fileA);
+            RecentColors b = new RecentColors(4, null);
+            b.add(Color.GRAY);
+            awaitSequence(fileA, 1);
+            b.share(fileB);
+            awaitColor(b, 0, Color.RED.getRGB());
+            assertEquals(1, b.size());
+
+            b.add(Color.GREEN);
+            awaitColor(a, 0, Color.GREEN.getRGB());
+            a.add(Color.BLUE);
+            a.add(Color.YELLOW);
+            awaitColor(b, 0, Color.YELLOW.getRGB());
+            assertEquals(4, b.size());
+            for (int i = 0; i < 4; i++) {
+                assertEquals(a.rgbAt(i), b.rgbAt(i));
+            }
+            a.unshare();
+            b.unshare();
+        } finally {
+            Files.delete(path);
+        }
+        Path other = Files.createTempFile("recent", ".colors");
+        try {
+            Files.write(other, new byte[64]);
+            assertThrows(IOException.class, () -> new SharedRecentColorsFile(other, 4096));
+            Files.write(other, new byte[]{1, 2, 3});
+            assertThrows(IOException.class, () -> new SharedRecentColorsFile(other, 4096));
+            assertEquals(3, Files.size(other));
+        } finally {
+            Files.delete(other);
+        }
+    }
+
+    private static void awaitSequence(SharedRecentColorsFile file, long sequence) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 10000;
+        while (file.sequence() < sequence && System.currentTimeMillis() < timeout) {
+            Thread.sleep(5);
+        }
+        assertTrue(file.sequence() >= sequence);
+    }
+
+    private static void awaitColor(RecentColors rc, int recency, int rgb) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 10000;
+        while ((rc.size() <= recency || rc.rgbAt(recency) != rgb)
+                && System.currentTimeMillis() < timeout) {
+            Thread.sleep(5);
+        }
+        assertEquals(rgb, rc.rgbAt(recency));
+    }
+
+    /**
+     * Records the delay of each scheduled task instead of running it, so
+     * tests of the save delay do not depend on timing.
+     */
+    private static final class ManualWriter extends ScheduledThreadPoolExecutor {
+
+        private final List<Long> delays = new CopyOnWriteArrayList<>();
+        private Runnable last;
+
+        ManualWriter() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            delays.add(unit.toMillis(delay));
+            last = command;
+            return super.schedule(command, 1, TimeUnit.DAYS);
+        }
+
+        void runLast() {
+            last.run();
+        }
+    }
+
+    /**
+     * Preferences held in memory, so tests never touch the user's real
+     * preferences.
+     */
+    private static final class MemoryPreferences extends AbstractPreferences {
+
+        private final Map<String, String> values = new HashMap<>();
+        private final Map<String, MemoryPreferences> children = new HashMap<>();
+
+        MemoryPreferences() {
+            this(null, "");
+        }
+
+        private MemoryPreferences(MemoryPreferences parent, String name) {
+            super(parent, name);
+        }
+
+        @Override
+        protected void putSpi(String key, String value) {
+            values.put(key, value);
+        }
+
+        @Override
+        protected String getSpi(String key) {
+            return values.get(key);
+        }
+
+        @Override
+        protected void removeSpi(String key) {
+            values.remove(key);
+        }
+
+        @Override
+        protected void removeNodeSpi() {
+            values.clear();
+        }
+
+        @Override
+        protected String[] keysSpi() {
+            return values.keySet().toArray(new String[0]);
+        }
+
+        @Override
+        protected String[] childrenNamesSpi() {
+            return children.keySet().toArray(new String[0]);
+        }
+
+        @Override
+        protected AbstractPreferences childSpi(String name) {
+            return children.computeIfAbsent(name, n -> new MemoryPreferences(this, n));
+        }
+
+        @Override
+        protected void syncSpi() {
+        }
+
+        @Override
+        protected void flushSpi() {
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package net.java.dev.colorchooser;
+
+import java.beans.PropertyChangeEvent;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ *
+ * @author Tim Boudreau
+ */
+public class StartupTest {
+
+    private static final String[] LAZY = {
+        "net.java.dev.colorchooser.PredefinedPalette$SvgColors",
+        "net.java.dev.colorchooser.PredefinedPalette$SystemColors",
+        "net.java.dev.colorchooser.PredefinedPalette$SwingColor",
+        "net.java.dev.colorchooser.AlphaPalette$AlphaNames",
+        "net.java.dev.colorchooser.ContinuousPalette",
+        "net.java.dev.colorchooser.RecentColors",};
+
+    @Test
+    public void testUnopenedChooserBuildsNoPalettes() throws Exception {
+        try (FreshLoader loader = new FreshLoader()) {
+            assertNotNull(loader.loadClass(ColorChooser.class.getName())
+                    .getConstructor().newInstance());
+            for (String name : LAZY) {
+                assertFalse(loader.isLoaded(name), name);
+            }
+        }
+    }
+
+    @Test
+    public void testResetNotifiesListenersForAllProperties() {
+        ColorChooser cc = new ColorChooser();
+        cc.getPalettes();
+        List<PropertyChangeEvent> events = new ArrayList<>();
+        cc.addPropertyChangeListener(evt -> {
+            if ("palettes".equals(evt.getPropertyName())) {
+                events.add(evt);
+            }
+        });
+        cc.setContinuousPalettePreferred(!cc.isContinuousPalettePreferred());
+        assertEquals(1, events.size());
+        assertNotNull(events.get(0).getNewValue());
+    }
+
+    /**
+     * Time from loading the library in a new class loader to a constructed
+     * ColorChooser. Run with
+     * <code>mvn test -Dtest=StartupTest -Dbenchmark=true</code>.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void benchmarkTimeToFirstChooser() throws Exception {
+        int runs = 30;
+        long[] nanos = new long[runs];
+        for (int i = 0; i < runs + 5; i++) {
+            try (FreshLoader loader = new FreshLoader()) {
+                long start = System.nanoTime();
+                loader.loadClass(ColorChooser.class.getName())
+                        .getConstructor().newInstance();
+                long elapsed = System.nanoTime() - start;
+                if (i >= 5) {
+                    nanos[i - 5] = elapsed;
+                }
+            }
+        }
+        Arrays.sort(nanos);
+        Logger.getLogger(StartupTest.class.getName()).log(Level.INFO,
+                "Time to first ColorChooser: median {0}us, min {1}us",
+                new Object[]{nanos[runs / 2] / 1000, nanos[0] / 1000});
+    }
+
+    private static final class FreshLoader extends URLClassLoader {
+
+        FreshLoader() {
+            super(new URL[]{ColorChooser.class.getProtectionDomain()
+                .getCodeSource().getLocation()},
+                    ClassLoader.getSystemClassLoader().getParent());
+        }
+
+        boolean isLoaded(String name) {
+            return findLoadedClass(name) != null;
+        }
+    }
+}